@@ -0,0 +1,33 @@
+package com.example.alex.testapp;
+
+import android.os.Debug;
+
+/**
+ * Reference counts the runtime's allocation counters, which are process wide: counting starts
+ * with the first user and stops with the last, so one gauge can't stop it under another, or
+ * under an app that counts on its own.
+ */
+final class AllocationCounting {
+
+    private static int sUsers;
+
+    private AllocationCounting() {
+    }
+
+    @SuppressWarnings("deprecation")
+    static synchronized void acquire() {
+        if (0 == sUsers++) {
+            Debug.startAllocCounting();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    static synchronized void release() {
+        if (sUsers <= 0) {
+            throw new IllegalStateException("Allocation counting released more often than acquired");
+        }
+        if (0 == --sUsers) {
+            Debug.stopAllocCounting();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.alex.testapp;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * {@link GaugeCanvas} on top of an Android {@link Canvas}, with one {@link Paint} per role.
+ */
+final class AndroidGaugeCanvas implements GaugeCanvas {
+
+    private final Paint[] mPaints;
+    private final RectF mOval = new RectF();
+    private final Path mPath = new Path();
+    private float[] mPathPoints;
+    private Canvas mCanvas;
+
+    AndroidGaugeCanvas(final Paint[] paints) {
+        mPaints = paints;
+    }
+
+    AndroidGaugeCanvas setCanvas(final Canvas canvas) {
+        mCanvas = canvas;
+        return this;
+    }
+
+    @Override
+    public void save() {
+        mCanvas.save();
+    }
+
+    @Override
+    public void restore() {
+        mCanvas.restore();
+    }
+
+    @Override
+    public void rotate(final float degrees, final float px, final float py) {
+        mCanvas.rotate(degrees, px, py);
+    }
+
+    @Override
+    public void drawArc(final float left, final float top, final float right, final float bottom,
+                        final float startAngle, final float sweepAngle, final int paint) {
+        mOval.set(left, top, right, bottom);
+        mCanvas.drawArc(mOval, startAngle, sweepAngle, false, mPaints[paint]);
+    }
+
+    @Override
+    public void drawLines(final float[] points, final int offset, final int count, final int paint) {
+        mCanvas.drawLines(points, offset, count, mPaints[paint]);
+    }
+
+    @Override
+    public void drawPolygon(final float[] points, final int count, final int paint) {
+        if (points != mPathPoints) {
+            // Each polygon is drawn through an adapter of its own, so the path is built once
+            mPathPoints = points;
+            mPath.rewind();
+            mPath.moveTo(points[0], points[1]);
+            for (int i = 1; i < count; i++) {
+                mPath.lineTo(points[2 * i], points[2 * i + 1]);
+            }
+            mPath.close();
+        }
+        mCanvas.drawPath(mPath, mPaints[paint]);
+    }
+
+    @Override
+    public void drawCircle(final float cx, final float cy, final float radius, final int paint) {
+        mCanvas.drawCircle(cx, cy, radius, mPaints[paint]);
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.alex.testapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Process-wide cache of the static gauge layers (rim, face, scale and ranges), shared by
+ * every view that renders the same style at the same size.
+ * <p>
+ * Entries are reference counted: a bitmap handed out by {@link #acquire(Key, Renderer)}
+ * stays valid until the matching {@link #release(Key)}. Unreferenced entries are kept in
+ * LRU order and evicted (and recycled) once the cache grows beyond its byte budget.
+ */
+public final class BackgroundCache {
+
+    /**
+     * Draws a static layer onto a blank canvas of the given size. Implementations passed to
+     * {@link #prerender(Key, Renderer)} are called on a background thread.
+     */
+    public interface Renderer {
+        void render(Canvas canvas, int width, int height);
+    }
+
+    /**
+     * A renderer that can produce the whole layer as a bitmap of its own, e.g. by decoding
+     * it, which is then cached as is instead of being drawn into a blank one.
+     */
+    public interface BitmapRenderer extends Renderer {
+        /**
+         * @return the layer at exactly {@code width} x {@code height}, or null to have it
+         * drawn by {@link #render(Canvas, int, int)} instead
+         */
+        Bitmap createBitmap(int width, int height);
+    }
+
+    public static final class Key {
+        private final int mWidth;
+        private final int mHeight;
+        private final StaticLayerSpec mStaticLayer;
+
+        public Key(final int width, final int height, final StaticLayerSpec staticLayer) {
+            mWidth = width;
+            mHeight = height;
+            mStaticLayer = staticLayer;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        public StaticLayerSpec getStaticLayer() {
+            return mStaticLayer;
+        }
+
+        public int getStyleHash() {
+            return mStaticLayer.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return mWidth == key.mWidth && mHeight == key.mHeight && mStaticLayer.equals(key.mStaticLayer);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * mWidth + mHeight) + mStaticLayer.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final Bitmap mBitmap;
+        int mReferences;
+
+        Entry(final Bitmap bitmap) {
+            mBitmap = bitmap;
+        }
+    }
+
+    private static BackgroundCache sInstance;
+
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mMaxBytes;
+    private long mBytes;
+    private ExecutorService mPrerenderExecutor;
+
+    private BackgroundCache(final long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    public static synchronized BackgroundCache getInstance() {
+        if (null == sInstance) {
+            sInstance = new BackgroundCache(Runtime.getRuntime().maxMemory() / 8);
+        }
+        return sInstance;
+    }
+
+    public synchronized void setMaxBytes(final long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToBudget();
+    }
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * Returns the layer for {@code key}, rendering it on the calling thread on a miss, and
+     * takes a reference on it.
+     */
+    public Bitmap acquire(final Key key, final Renderer renderer) {
+        synchronized (this) {
+            final Entry entry = mEntries.get(key);
+            if (null != entry) {
+                entry.mReferences++;
+                return entry.mBitmap;
+            }
+        }
+        return insert(key, render(key, renderer), 1);
+    }
+
+    public synchronized boolean contains(final Key key) {
+        return mEntries.containsKey(key);
+    }
+
+    public synchronized void release(final Key key) {
+        final Entry entry = mEntries.get(key);
+        if (null != entry && entry.mReferences > 0) {
+            entry.mReferences--;
+            trimToBudget();
+        }
+    }
+
+    /**
+     * Renders the layer for {@code key} on a background thread so a later
+     * {@link #acquire(Key, Renderer)} is a hit. Does nothing if the layer is already cached.
+     */
+    public void prerender(final Key key, final Renderer renderer) {
+        prerender(key, renderer, null);
+    }
+
+    /**
+     * Like {@link #prerender(Key, Renderer)}, and runs {@code done} on the prerender thread
+     * once the layer is in the cache, or right away if it already is.
+     */
+    public void prerender(final Key key, final Renderer renderer, final Runnable done) {
+        if (contains(key)) {
+            if (null != done) {
+                done.run();
+            }
+            return;
+        }
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean cached;
+                synchronized (BackgroundCache.this) {
+                    cached = mEntries.containsKey(key);
+                }
+                if (!cached) {
+                    insert(key, render(key, renderer), 0);
+                }
+                if (null != done) {
+                    done.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs {@code task} on the low priority prerender thread, after the layers queued so far.
+     */
+    public void execute(final Runnable task) {
+        synchronized (this) {
+            if (null == mPrerenderExecutor) {
+                mPrerenderExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r, "GaugeBackgroundPrerender");
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+            }
+        }
+        mPrerenderExecutor.execute(task);
+    }
+
+    public synchronized void evictAll() {
+        final Iterator<Map.Entry<Key, Entry>> it = mEntries.entrySet().iterator();
+        while (it.hasNext()) {
+            final Entry entry = it.next().getValue();
+            if (0 == entry.mReferences) {
+                evict(it, entry);
+            }
+        }
+    }
+
+    private static Bitmap render(final Key key, final Renderer renderer) {
+        if (renderer instanceof BitmapRenderer) {
+            final Bitmap created = ((BitmapRenderer) renderer).createBitmap(key.getWidth(), key.getHeight());
+            if (null != created) {
+                if (created.getWidth() == key.getWidth() && created.getHeight() == key.getHeight()) {
+                    return created;
+                }
+                created.recycle();
+            }
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(key.getWidth(), key.getHeight(), Bitmap.Config.ARGB_8888);
+        renderer.render(new Canvas(bitmap), key.getWidth(), key.getHeight());
+        return bitmap;
+    }
+
+    private synchronized Bitmap insert(final Key key, final Bitmap bitmap, final int references) {
+        final Entry existing = mEntries.get(key);
+        if (null != existing) {
+            // Another thread rendered the same layer in the meantime
+            bitmap.recycle();
+            existing.mReferences += references;
+            return existing.mBitmap;
+        }
+        final Entry entry = new Entry(bitmap);
+        entry.mReferences = references;
+        mEntries.put(key, entry);
+        mBytes += bitmap.getByteCount();
+        trimToBudget();
+        return bitmap;
+    }
+
+    private void trimToBudget() {
+        final Iterator<Map.Entry<Key, Entry>> it = mEntries.entrySet().iterator();
+        while (mBytes > mMaxBytes && it.hasNext()) {
+            final Entry entry = it.next().getValue();
+            if (0 == entry.mReferences) {
+                evict(it, entry);
+            }
+        }
+    }
+
+    private void evict(final Iterator<Map.Entry<Key, Entry>> it, final Entry entry) {
+        it.remove();
+        mBytes -= entry.mBitmap.getByteCount();
+        entry.mBitmap.recycle();
+    }
+}
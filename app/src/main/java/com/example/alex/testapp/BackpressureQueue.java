@@ -0,0 +1,120 @@
+package com.example.alex.testapp;
+
+/**
+ * A {@link SampleQueue} with an explicit policy for producers that outpace the consumer.
+ * <ul>
+ * <li>{@link #DROP_NEWEST} rejects the new sample, like the lock-free queues.</li>
+ * <li>{@link #DROP_OLDEST} overwrites the oldest queued sample.</li>
+ * <li>{@link #LATEST_ONLY} keeps a single slot that every sample overwrites.</li>
+ * <li>{@link #BLOCK} makes {@link #offer(long, float)} wait for room, which suits replays that
+ *     must not lose samples. Never offer on the UI thread with this policy.</li>
+ * </ul>
+ * Unlike {@link SpscSampleQueue} this queue takes a lock, which is cheap at sensor rates and
+ * lets any number of producers share it.
+ */
+public class BackpressureQueue implements SampleQueue {
+
+    public static final int DROP_NEWEST = 0;
+    public static final int DROP_OLDEST = 1;
+    public static final int LATEST_ONLY = 2;
+    public static final int BLOCK = 3;
+
+    private final int mPolicy;
+    private final long[] mTimestamps;
+    private final float[] mValues;
+    private int mHead;
+    private int mSize;
+    private long mDropped;
+
+    public BackpressureQueue(final int capacity, final int policy) {
+        if (policy < DROP_NEWEST || policy > BLOCK) {
+            throw new IllegalArgumentException("Unknown policy: " + policy);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        final int size = (LATEST_ONLY == policy) ? 1 : capacity;
+        mPolicy = policy;
+        mTimestamps = new long[size];
+        mValues = new float[size];
+    }
+
+    public int getPolicy() {
+        return mPolicy;
+    }
+
+    /**
+     * With {@link #BLOCK} this waits until there is room, and gives up (returning false) only
+     * when the calling thread is interrupted.
+     */
+    @Override
+    public synchronized boolean offer(final long timestampNanos, final float value) {
+        final int capacity = mValues.length;
+        if (mSize == capacity) {
+            switch (mPolicy) {
+                case DROP_NEWEST:
+                    mDropped++;
+                    return false;
+                case BLOCK:
+                    try {
+                        while (mSize == capacity) {
+                            wait();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        mDropped++;
+                        return false;
+                    }
+                    break;
+                case DROP_OLDEST:
+                case LATEST_ONLY:
+                default:
+                    mHead = (mHead + 1) % capacity;
+                    mSize--;
+                    mDropped++;
+                    break;
+            }
+        }
+        final int index = (mHead + mSize) % capacity;
+        mTimestamps[index] = timestampNanos;
+        mValues[index] = value;
+        mSize++;
+        return true;
+    }
+
+    @Override
+    public int drainTo(final SampleSink sink) {
+        // The sink is normally a SampleReducer, cheap enough to run under the lock
+        final int count;
+        synchronized (this) {
+            count = mSize;
+            if (0 == count) {
+                return 0;
+            }
+            final int capacity = mValues.length;
+            for (int i = 0; i < count; i++) {
+                final int index = (mHead + i) % capacity;
+                sink.onSample(mTimestamps[index], mValues[index]);
+            }
+            mHead = (mHead + count) % capacity;
+            mSize = 0;
+            notifyAll();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return 0 == mSize;
+    }
+
+    @Override
+    public int getCapacity() {
+        return mValues.length;
+    }
+
+    @Override
+    public synchronized long getDroppedCount() {
+        return mDropped;
+    }
+}
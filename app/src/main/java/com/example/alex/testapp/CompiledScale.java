@@ -0,0 +1,79 @@
+package com.example.alex.testapp;
+
+/**
+ * Tick geometry of a {@link GaugeScale}, computed once so that drawing the scale is one
+ * {@code drawLines} call per range instead of a canvas rotation and a range lookup per tick.
+ * <p>
+ * Endpoints are in the gauge's unit square, already rotated around its center, and stored
+ * as flat {@code x0, y0, x1, y1} runs grouped by range.
+ */
+public class CompiledScale {
+
+    public static final float DIVISION_TICK_LENGTH = 0.075f;
+    public static final float DIVISION_TICK_OFFSET = -0.015f;
+
+    private final float[][] mLines;
+    private final int[] mLineCounts;
+
+    /**
+     * @param scale   the scale to compile
+     * @param top     distance of the scale from the top of the unit square
+     */
+    public CompiledScale(final GaugeScale scale, final float top) {
+        final int ranges = scale.getRangeValues().length;
+        mLineCounts = new int[ranges];
+
+        // First pass classifies the ticks and sizes the arrays, second pass fills them
+        final int totalTicks = scale.getTotalTicks();
+        final int[] tickRanges = new int[totalTicks];
+        for (int i = 0; i < totalTicks; i++) {
+            final float value = scale.getValueForTick(i);
+            if (scale.isDivisionTick(value)) {
+                tickRanges[i] = scale.getRangeIndex(value);
+                mLineCounts[tickRanges[i]] += 4;
+            } else {
+                tickRanges[i] = -1;
+            }
+        }
+        mLines = new float[ranges][];
+        for (int r = 0; r < ranges; r++) {
+            mLines[r] = new float[mLineCounts[r]];
+        }
+
+        final float y0 = top + DIVISION_TICK_OFFSET - 0.5f;
+        final float y1 = y0 + DIVISION_TICK_LENGTH;
+        final int[] offsets = new int[ranges];
+        for (int i = 0; i < totalTicks; i++) {
+            final int range = tickRanges[i];
+            if (range < 0) continue;
+
+            final double angle = Math.toRadians(scale.getRotation() + i * scale.getSubdivisionAngle());
+            final float sin = (float) Math.sin(angle);
+            final float cos = (float) Math.cos(angle);
+            final float[] lines = mLines[range];
+            int offset = offsets[range];
+            // A vertical tick above the center, rotated clockwise around (0.5, 0.5) the way
+            // Canvas.rotate() does
+            lines[offset++] = 0.5f - y0 * sin;
+            lines[offset++] = 0.5f + y0 * cos;
+            lines[offset++] = 0.5f - y1 * sin;
+            lines[offset++] = 0.5f + y1 * cos;
+            offsets[range] = offset;
+        }
+    }
+
+    public int getRangeCount() {
+        return mLines.length;
+    }
+
+    public float[] getLines(final int range) {
+        return mLines[range];
+    }
+
+    /**
+     * Number of floats (four per tick) used in {@link #getLines(int)}.
+     */
+    public int getLineFloatCount(final int range) {
+        return mLineCounts[range];
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.alex.testapp;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * A grid of gauges drawn by a single view in a single pass.
+ * <p>
+ * Gauges that use the same {@link GaugeRenderer} share its paints and paths, and gauges of the
+ * same style share one static layer from the {@link BackgroundCache}. All needles are stepped
+ * together by one {@link NeedlePhysics} on one {@link FrameDriver} callback, and only the cells
+ * whose needle moved are invalidated.
+ */
+public class DashboardView extends View {
+
+    public static final int GAUGE_COUNT = 0;
+    public static final int COLUMN_COUNT = 0;
+
+    private final ArrayList<GaugeRenderer> mRenderers = new ArrayList<>();
+    private NeedlePhysics mPhysics;
+    private int mNeedleModel = NeedlePhysics.MODEL_SPRING;
+    private float mDampingRatio = NeedlePhysics.DAMPING_RATIO;
+    private float mFrequency = NeedlePhysics.FREQUENCY;
+    private float mMaxRate = NeedlePhysics.MAX_RATE;
+    private float[] mTargetValues = new float[0];
+    private float[] mDrawnValues = new float[0];
+    private boolean[] mDrawn = new boolean[0];
+    // Whether a gauge has been given a target; until then only its background is drawn
+    private boolean[] mInitialized = new boolean[0];
+
+    private int mColumnCount;
+    private int mCellWidth;
+    private int mCellHeight;
+    private final Rect mCellRect = new Rect();
+
+    private Bitmap[] mBackgrounds = new Bitmap[0];
+    private final ArrayList<BackgroundCache.Key> mBackgroundKeys = new ArrayList<>();
+
+    private boolean mAnimating;
+    private long mLastFrameNanos = -1;
+
+    public DashboardView(final Context context, final AttributeSet attrs, final int defStyle) {
+        super(context, attrs, defStyle);
+        readAttrs(context, attrs, defStyle);
+    }
+
+    public DashboardView(final Context context, final AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public DashboardView(final Context context) {
+        this(context, null, 0);
+    }
+
+    private void readAttrs(final Context context, final AttributeSet attrs, final int defStyle) {
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.DashboardView, defStyle, 0);
+        mColumnCount = a.getInteger(R.styleable.DashboardView_columnCount, COLUMN_COUNT);
+        final int gaugeCount = a.getInteger(R.styleable.DashboardView_gaugeCount, GAUGE_COUNT);
+        if (gaugeCount > 0) {
+            // Gauges declared in XML all share one renderer
+            final GaugeRenderer renderer = new GaugeRenderer(context,
+                    a.getResourceId(R.styleable.DashboardView_gaugeStyle, 0));
+            for (int i = 0; i < gaugeCount; i++) {
+                addGauge(renderer);
+            }
+        }
+        a.recycle();
+    }
+
+    /**
+     * Appends a gauge drawn by {@code renderer}. Pass the same renderer for gauges that look
+     * alike so they share their paints and background.
+     *
+     * @return the index of the new gauge
+     */
+    public int addGauge(final GaugeRenderer renderer) {
+        final int index = mRenderers.size();
+        final int count = index + 1;
+        mRenderers.add(renderer);
+
+        // Growing is rare, so the needle state is simply copied over
+        final NeedlePhysics physics = new NeedlePhysics(count);
+        physics.setModel(mNeedleModel);
+        physics.setDampingRatio(mDampingRatio);
+        physics.setFrequency(mFrequency);
+        physics.setMaxRate(mMaxRate);
+        for (int i = 0; i < index; i++) {
+            physics.setState(i, mPhysics.getValue(i), mPhysics.getVelocity(i), mPhysics.getAcceleration(i),
+                    mPhysics.getTarget(i));
+        }
+        mPhysics = physics;
+        mTargetValues = copyOf(mTargetValues, count);
+        mDrawnValues = copyOf(mDrawnValues, count);
+        final boolean[] drawn = new boolean[count];
+        System.arraycopy(mDrawn, 0, drawn, 0, index);
+        mDrawn = drawn;
+        final boolean[] initialized = new boolean[count];
+        System.arraycopy(mInitialized, 0, initialized, 0, index);
+        mInitialized = initialized;
+        mBackgrounds = new Bitmap[count];
+
+        layoutCells();
+        requestLayout();
+        invalidate();
+        return index;
+    }
+
+    private static float[] copyOf(final float[] array, final int length) {
+        final float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    public int getGaugeCount() {
+        return mRenderers.size();
+    }
+
+    public GaugeRenderer getRenderer(final int index) {
+        return mRenderers.get(index);
+    }
+
+    /**
+     * @param columns the number of gauges per row, or 0 for a square-ish grid
+     */
+    public void setColumnCount(final int columns) {
+        mColumnCount = columns;
+        layoutCells();
+        invalidate();
+    }
+
+    public int getColumnCount() {
+        final int count = mRenderers.size();
+        if (mColumnCount > 0) {
+            return Math.min(mColumnCount, Math.max(count, 1));
+        }
+        return Math.max((int) Math.ceil(Math.sqrt(count)), 1);
+    }
+
+    public int getRowCount() {
+        final int columns = getColumnCount();
+        return (mRenderers.size() + columns - 1) / columns;
+    }
+
+    /**
+     * @param model one of the {@link NeedlePhysics} {@code MODEL_} constants, for every gauge
+     */
+    public void setNeedleModel(final int model) {
+        mNeedleModel = model;
+        if (null != mPhysics) {
+            mPhysics.setModel(model);
+        }
+    }
+
+    public int getNeedleModel() {
+        return mNeedleModel;
+    }
+
+    /**
+     * For {@link NeedlePhysics#MODEL_DAMPED}, for every gauge; see
+     * {@link NeedlePhysics#setDampingRatio(float)}.
+     */
+    public void setNeedleDampingRatio(final float ratio) {
+        if (ratio <= 0) {
+            throw new IllegalArgumentException("Damping ratio must be positive: " + ratio);
+        }
+        mDampingRatio = ratio;
+        if (null != mPhysics) {
+            mPhysics.setDampingRatio(ratio);
+        }
+    }
+
+    public float getNeedleDampingRatio() {
+        return mDampingRatio;
+    }
+
+    /**
+     * For {@link NeedlePhysics#MODEL_DAMPED}, for every gauge; see
+     * {@link NeedlePhysics#setFrequency(float)}.
+     */
+    public void setNeedleFrequency(final float frequency) {
+        if (frequency <= 0) {
+            throw new IllegalArgumentException("Frequency must be positive: " + frequency);
+        }
+        mFrequency = frequency;
+        if (null != mPhysics) {
+            mPhysics.setFrequency(frequency);
+        }
+    }
+
+    public float getNeedleFrequency() {
+        return mFrequency;
+    }
+
+    /**
+     * For {@link NeedlePhysics#MODEL_LINEAR}, for every gauge; see
+     * {@link NeedlePhysics#setMaxRate(float)}.
+     */
+    public void setNeedleMaxRate(final float rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + rate);
+        }
+        mMaxRate = rate;
+        if (null != mPhysics) {
+            mPhysics.setMaxRate(rate);
+        }
+    }
+
+    public float getNeedleMaxRate() {
+        return mMaxRate;
+    }
+
+    public void setTargetValue(final int index, final float value) {
+        final float target = mRenderers.get(index).clampValue(value);
+        mTargetValues[index] = target;
+        mPhysics.setTarget(index, target);
+        mInitialized[index] = true;
+        invalidateCell(index);
+        startAnimation();
+    }
+
+    public float getTargetValue(final int index) {
+        return mTargetValues[index];
+    }
+
+    public float getValue(final int index) {
+        return mPhysics.getValue(index);
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        final int columns = getColumnCount();
+        final int rows = Math.max(getRowCount(), 1);
+        final int width = chooseDimension(widthMeasureSpec, columns * GaugeView.SIZE);
+        final int height = chooseDimension(heightMeasureSpec, rows * GaugeView.SIZE);
+        setMeasuredDimension(width, height);
+    }
+
+    private int chooseDimension(final int measureSpec, final int preferred) {
+        switch (MeasureSpec.getMode(measureSpec)) {
+            case View.MeasureSpec.AT_MOST:
+            case View.MeasureSpec.EXACTLY:
+                return MeasureSpec.getSize(measureSpec);
+            case View.MeasureSpec.UNSPECIFIED:
+            default:
+                return preferred;
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
+        layoutCells();
+    }
+
+    /**
+     * Recomputes the cell size and acquires one background per distinct style at that size.
+     */
+    private void layoutCells() {
+        releaseBackgrounds();
+        final int count = mRenderers.size();
+        if (0 == count || getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        mCellWidth = getWidth() / getColumnCount();
+        mCellHeight = getHeight() / getRowCount();
+        if (mCellWidth <= 0 || mCellHeight <= 0) {
+            return;
+        }
+
+        final BackgroundCache cache = BackgroundCache.getInstance();
+        final float scale = Math.min(mCellWidth, mCellHeight);
+        for (int i = 0; i < count; i++) {
+            final GaugeRenderer renderer = mRenderers.get(i);
+            final StaticLayerSpec style = renderer.getStaticLayer();
+            // Every cell has the same size, so the style alone decides whether a layer is shared
+            for (int j = 0; j < i && null == mBackgrounds[i]; j++) {
+                if (mRenderers.get(j).getStaticLayer().equals(style)) {
+                    mBackgrounds[i] = mBackgrounds[j];
+                }
+            }
+            if (null == mBackgrounds[i]) {
+                final BackgroundCache.Key key = new BackgroundCache.Key(mCellWidth, mCellHeight, style);
+                mBackgroundKeys.add(key);
+                mBackgrounds[i] = cache.acquire(key, renderer.asBackgroundRenderer());
+            }
+            renderer.prepare(scale);
+        }
+    }
+
+    private void releaseBackgrounds() {
+        final BackgroundCache cache = BackgroundCache.getInstance();
+        for (int i = 0; i < mBackgroundKeys.size(); i++) {
+            cache.release(mBackgroundKeys.get(i));
+        }
+        mBackgroundKeys.clear();
+        for (int i = 0; i < mBackgrounds.length; i++) {
+            mBackgrounds[i] = null;
+        }
+    }
+
+    private void getCellRect(final int index, final Rect rect) {
+        final int columns = getColumnCount();
+        final int left = (index % columns) * mCellWidth;
+        final int top = (index / columns) * mCellHeight;
+        rect.set(left, top, left + mCellWidth, top + mCellHeight);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mBackgroundKeys.isEmpty()) {
+            layoutCells();
+        }
+        startAnimation();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopAnimation();
+        releaseBackgrounds();
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        final int count = mRenderers.size();
+        if (mCellWidth <= 0 || mCellHeight <= 0) {
+            return;
+        }
+        final float scale = Math.min(mCellWidth, mCellHeight);
+        for (int i = 0; i < count; i++) {
+            getCellRect(i, mCellRect);
+            // Cells outside the dirty region cost nothing
+            if (canvas.quickReject(mCellRect.left, mCellRect.top, mCellRect.right, mCellRect.bottom,
+                    Canvas.EdgeType.AA)) {
+                continue;
+            }
+            final GaugeRenderer renderer = mRenderers.get(i);
+            if (null != mBackgrounds[i]) {
+                canvas.drawBitmap(mBackgrounds[i], mCellRect.left, mCellRect.top, renderer.getBitmapPaint());
+            }
+            if (!mInitialized[i]) {
+                continue;
+            }
+
+            final float value = mPhysics.getValue(i);
+            canvas.save();
+            canvas.translate(mCellRect.left, mCellRect.top);
+            GaugeRenderer.fitUnitSquare(canvas, mCellWidth, mCellHeight);
+            if (renderer.isShowNeedle()) {
+                renderer.drawNeedle(canvas, value);
+            }
+            if (renderer.isShowText()) {
+                renderer.drawText(canvas, value, scale);
+            }
+            canvas.restore();
+            mDrawnValues[i] = value;
+            mDrawn[i] = true;
+        }
+    }
+
+    private final FrameDriver.Callback mFrameCallback = new FrameDriver.Callback() {
+        @Override
+        public boolean doFrame(final long frameTimeNanos) {
+            return computeCurrentValues(frameTimeNanos);
+        }
+    };
+
+    /**
+     * Steps every needle to the given vsync time and invalidates the cells that changed.
+     *
+     * @return true while any needle still needs frames
+     */
+    private boolean computeCurrentValues(final long frameTimeNanos) {
+        if (!canAnimate()) {
+            mAnimating = false;
+            return false;
+        }
+        if (-1 != mLastFrameNanos) {
+            mPhysics.advanceNanos(frameTimeNanos - mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        final int count = mRenderers.size();
+        for (int i = 0; i < count; i++) {
+            if (mInitialized[i] && (!mDrawn[i] || mDrawnValues[i] != mPhysics.getValue(i))) {
+                invalidateCell(i);
+            }
+        }
+
+        mAnimating = mPhysics.isAnyMoving();
+        return mAnimating;
+    }
+
+    private void invalidateCell(final int index) {
+        if (mCellWidth <= 0 || mCellHeight <= 0) {
+            invalidate();
+            return;
+        }
+        getCellRect(index, mCellRect);
+        invalidate(mCellRect);
+    }
+
+    private boolean canAnimate() {
+        return null != mPhysics && mPhysics.isAnyMoving() && null != getWindowToken() && isShown();
+    }
+
+    private void startAnimation() {
+        if (!mAnimating && canAnimate()) {
+            mAnimating = true;
+            // The first frame only establishes the time base
+            mLastFrameNanos = -1;
+            FrameDriver.getInstance().add(mFrameCallback);
+        }
+    }
+
+    private void stopAnimation() {
+        if (mAnimating) {
+            mAnimating = false;
+            FrameDriver.getInstance().remove(mFrameCallback);
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(final View changedView, final int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (isShown()) {
+            startAnimation();
+        } else {
+            stopAnimation();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(final int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (VISIBLE == visibility) {
+            startAnimation();
+        } else {
+            stopAnimation();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.alex.testapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Digits, minus sign and decimal point pre-rasterized into a single bitmap, so that a
+ * numeric readout can be drawn every frame with a handful of bitmap blits and no allocation.
+ * The atlas is built for one text size and color; rebuild it when either changes.
+ */
+public class DigitAtlas {
+
+    public static final String GLYPHS = "0123456789-.";
+
+    private final Bitmap mBitmap;
+    private final float mTextSize;
+    private final int mColor;
+
+    private final int[] mGlyphLeft = new int[GLYPHS.length()];
+    private final int[] mGlyphWidth = new int[GLYPHS.length()];
+    private final float[] mAdvance = new float[GLYPHS.length()];
+    private final int mPadding;
+    private final int mBaseline;
+    private final int mHeight;
+
+    private final Rect mSrc = new Rect();
+    private final RectF mDst = new RectF();
+
+    /**
+     * @param paint     text paint configured in pixels, including any shadow layer
+     * @param padding   room around each glyph for the shadow, in pixels
+     */
+    public DigitAtlas(final Paint paint, final int padding) {
+        mTextSize = paint.getTextSize();
+        mColor = paint.getColor();
+        mPadding = padding;
+
+        final Paint glyphPaint = new Paint(paint);
+        glyphPaint.setTextAlign(Paint.Align.LEFT);
+        final Paint.FontMetrics metrics = glyphPaint.getFontMetrics();
+        mBaseline = padding + (int) Math.ceil(-metrics.ascent);
+        mHeight = mBaseline + (int) Math.ceil(metrics.descent) + padding;
+
+        int left = 0;
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            mAdvance[i] = glyphPaint.measureText(GLYPHS, i, i + 1);
+            mGlyphLeft[i] = left;
+            mGlyphWidth[i] = (int) Math.ceil(mAdvance[i]) + 2 * padding;
+            left += mGlyphWidth[i];
+        }
+
+        mBitmap = Bitmap.createBitmap(Math.max(1, left), Math.max(1, mHeight), Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS, i, i + 1, mGlyphLeft[i] + padding, mBaseline, glyphPaint);
+        }
+    }
+
+    public boolean matches(final float textSize, final int color) {
+        return mTextSize == textSize && mColor == color;
+    }
+
+    public void recycle() {
+        mBitmap.recycle();
+    }
+
+    /**
+     * Measures {@code length} chars of {@code text} in pixels.
+     */
+    public float measure(final char[] text, final int length) {
+        float width = 0;
+        for (int i = 0; i < length; i++) {
+            final int glyph = indexOf(text[i]);
+            if (glyph >= 0) {
+                width += mAdvance[glyph];
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Draws the text horizontally centered on {@code x} with its baseline at {@code y}.
+     * Coordinates are in the canvas' current units; {@code pixelsPerUnit} converts the atlas'
+     * pixel metrics into them.
+     */
+    public void draw(final Canvas canvas, final char[] text, final int length, final float x, final float y,
+                     final float pixelsPerUnit, final Paint paint) {
+        final float unit = 1.0f / pixelsPerUnit;
+        float left = x - measure(text, length) * unit / 2;
+        final float top = y - mBaseline * unit;
+        for (int i = 0; i < length; i++) {
+            final int glyph = indexOf(text[i]);
+            if (glyph < 0) continue;
+
+            mSrc.set(mGlyphLeft[glyph], 0, mGlyphLeft[glyph] + mGlyphWidth[glyph], mHeight);
+            final float glyphLeft = left - mPadding * unit;
+            mDst.set(glyphLeft, top, glyphLeft + mGlyphWidth[glyph] * unit, top + mHeight * unit);
+            canvas.drawBitmap(mBitmap, mSrc, mDst, paint);
+            left += mAdvance[glyph] * unit;
+        }
+    }
+
+    private static int indexOf(final char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c == '-') return 10;
+        if (c == '.') return 11;
+        return -1;
+    }
+}
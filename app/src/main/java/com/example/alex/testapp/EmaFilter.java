@@ -0,0 +1,39 @@
+package com.example.alex.testapp;
+
+/**
+ * Exponential moving average with a time constant, so the smoothing does not depend on the
+ * sample rate: a step input reaches 63% of its height after one time constant.
+ */
+public class EmaFilter implements SignalFilter {
+
+    private final float mTimeConstantNanos;
+    private boolean mPrimed;
+    private long mLastTimestamp;
+    private float mValue;
+
+    public EmaFilter(final float timeConstantSeconds) {
+        if (timeConstantSeconds <= 0) {
+            throw new IllegalArgumentException("Time constant must be positive: " + timeConstantSeconds);
+        }
+        mTimeConstantNanos = timeConstantSeconds * 1e9f;
+    }
+
+    @Override
+    public float filter(final long timestampNanos, final float value) {
+        if (!mPrimed) {
+            mPrimed = true;
+            mValue = value;
+        } else {
+            final long elapsed = Math.max(timestampNanos - mLastTimestamp, 0);
+            final float alpha = 1.0f - (float) Math.exp(-elapsed / mTimeConstantNanos);
+            mValue += alpha * (value - mValue);
+        }
+        mLastTimestamp = timestampNanos;
+        return mValue;
+    }
+
+    @Override
+    public void reset() {
+        mPrimed = false;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.alex.testapp;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Vsync-paced animation loop shared by every gauge on a looper thread, so that N animating
+ * gauges cost a single {@link Choreographer} callback per frame rather than N.
+ * <p>
+ * Callbacks receive the frame time in nanoseconds on the {@link System#nanoTime()} time base
+ * and stay registered for as long as they return true. The driver stops posting frames as
+ * soon as no callback is left.
+ */
+public final class FrameDriver {
+
+    public interface Callback {
+        /**
+         * @return true to be called again on the next frame
+         */
+        boolean doFrame(long frameTimeNanos);
+    }
+
+    private interface Ticker {
+        void postFrame();
+    }
+
+    private static final long FALLBACK_FRAME_MILLIS = 16;
+
+    private static final ThreadLocal<FrameDriver> sDrivers = new ThreadLocal<FrameDriver>() {
+        @Override
+        protected FrameDriver initialValue() {
+            return new FrameDriver();
+        }
+    };
+
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    private final Ticker mTicker;
+    private boolean mFramePending;
+    private boolean mDispatching;
+    private boolean mRemovedWhileDispatching;
+
+    private FrameDriver() {
+        if (null == Looper.myLooper()) {
+            throw new IllegalStateException("FrameDriver requires a looper thread");
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mTicker = new ChoreographerTicker(this);
+        } else {
+            mTicker = new HandlerTicker(this);
+        }
+    }
+
+    /**
+     * Returns the driver of the calling thread, which must have a {@link Looper}.
+     */
+    public static FrameDriver getInstance() {
+        return sDrivers.get();
+    }
+
+    public void add(final Callback callback) {
+        if (!mCallbacks.contains(callback)) {
+            mCallbacks.add(callback);
+        }
+        if (!mFramePending) {
+            mFramePending = true;
+            mTicker.postFrame();
+        }
+    }
+
+    public void remove(final Callback callback) {
+        final int index = mCallbacks.indexOf(callback);
+        if (index < 0) {
+            return;
+        }
+        if (mDispatching) {
+            mCallbacks.set(index, null);
+            mRemovedWhileDispatching = true;
+        } else {
+            mCallbacks.remove(index);
+        }
+    }
+
+    public int getCallbackCount() {
+        return mCallbacks.size();
+    }
+
+    private void doFrame(final long frameTimeNanos) {
+        mFramePending = false;
+        mDispatching = true;
+        final int count = mCallbacks.size();
+        for (int i = 0; i < count; i++) {
+            final Callback callback = mCallbacks.get(i);
+            if (null != callback && !callback.doFrame(frameTimeNanos)) {
+                mCallbacks.set(i, null);
+                mRemovedWhileDispatching = true;
+            }
+        }
+        mDispatching = false;
+        if (mRemovedWhileDispatching) {
+            mRemovedWhileDispatching = false;
+            for (int i = mCallbacks.size() - 1; i >= 0; i--) {
+                if (null == mCallbacks.get(i)) {
+                    mCallbacks.remove(i);
+                }
+            }
+        }
+        if (!mCallbacks.isEmpty() && !mFramePending) {
+            mFramePending = true;
+            mTicker.postFrame();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class ChoreographerTicker implements Ticker, Choreographer.FrameCallback {
+        private final FrameDriver mDriver;
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        ChoreographerTicker(final FrameDriver driver) {
+            mDriver = driver;
+        }
+
+        @Override
+        public void postFrame() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(final long frameTimeNanos) {
+            mDriver.doFrame(frameTimeNanos);
+        }
+    }
+
+    /**
+     * Fallback for API 15, which has no Choreographer in the public SDK.
+     */
+    private static final class HandlerTicker implements Ticker, Runnable {
+        private final FrameDriver mDriver;
+        private final Handler mHandler = new Handler();
+
+        HandlerTicker(final FrameDriver driver) {
+            mDriver = driver;
+        }
+
+        @Override
+        public void postFrame() {
+            mHandler.postDelayed(this, FALLBACK_FRAME_MILLIS);
+        }
+
+        @Override
+        public void run() {
+            mDriver.doFrame(System.nanoTime());
+        }
+    }
+}
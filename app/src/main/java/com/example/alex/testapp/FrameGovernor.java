@@ -0,0 +1,121 @@
+package com.example.alex.testapp;
+
+/**
+ * Decides, frame by frame, whether a moving needle is worth redrawing.
+ * <p>
+ * The needle's motion is measured on screen, as the distance its tip travels in pixels. A
+ * frame is drawn once the tip has moved at least {@link #MIN_PIXELS} since the last drawn
+ * frame, so slow creeping is drawn at a proportionally lower rate, and the animation ends
+ * once the tip is within {@link #SETTLE_PIXELS} of its target and barely moving. An optional
+ * cap limits the drawn frame rate, e.g. under battery saver. Free of Android dependencies.
+ */
+public class FrameGovernor {
+
+    public static final int DRAW = 0;
+    public static final int SKIP = 1;
+    public static final int SETTLED = 2;
+
+    public static final float MIN_PIXELS = 1.0f;
+    public static final float SETTLE_PIXELS = 0.5f;
+    // Frames are a vsync apart, so a cap needs some slack to not lose every other frame
+    private static final long CAP_SLACK_NANOS = 2000000;
+
+    private float mRadius;
+    private long mMinIntervalNanos;
+
+    private boolean mDrawn;
+    private float mDrawnAngle;
+    private long mDrawnNanos;
+    private float mLastAngle;
+    private long mDrawnFrames;
+    private long mSkippedFrames;
+
+    /**
+     * @param radius distance from the pivot to the needle tip in pixels, or 0 to draw every
+     *               frame
+     */
+    public void setRadius(final float radius) {
+        mRadius = radius;
+    }
+
+    public float getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * Limits the drawn frames per second, or lifts the limit with 0.
+     */
+    public void setMaxFrameRate(final int fps) {
+        mMinIntervalNanos = (fps > 0) ? Math.max(1000000000L / fps - CAP_SLACK_NANOS, 0) : 0;
+    }
+
+    /**
+     * Forgets the last drawn frame, so that the next one is drawn. Call when an animation
+     * starts or the view was redrawn for another reason.
+     */
+    public void reset() {
+        mDrawn = false;
+    }
+
+    /**
+     * @param angle       the needle angle in degrees at this frame
+     * @param targetAngle the angle the needle is heading to
+     * @return {@link #DRAW}, {@link #SKIP}, or {@link #SETTLED} when the needle can be snapped
+     * to its target and the animation stopped
+     */
+    public int onFrame(final long frameTimeNanos, final float angle, final float targetAngle) {
+        if (mRadius <= 0) {
+            // Nothing to measure against, e.g. before layout
+            mDrawnFrames++;
+            return DRAW;
+        }
+        final float step = toPixels(angle - mLastAngle);
+        mLastAngle = angle;
+        if (mDrawn && toPixels(targetAngle - angle) < SETTLE_PIXELS && step < SETTLE_PIXELS) {
+            return SETTLED;
+        }
+        if (mDrawn && (toPixels(angle - mDrawnAngle) < MIN_PIXELS
+                || frameTimeNanos - mDrawnNanos < mMinIntervalNanos)) {
+            mSkippedFrames++;
+            return SKIP;
+        }
+        mDrawn = true;
+        mDrawnAngle = angle;
+        mDrawnNanos = frameTimeNanos;
+        mDrawnFrames++;
+        return DRAW;
+    }
+
+    /**
+     * Like {@link #onFrame(long, float, float)}, for the frame on which the needle came to rest
+     * at {@code angle}. No later frame would correct a skipped one, so this frame is drawn
+     * regardless of the distance and of the cap.
+     *
+     * @return {@link #DRAW}, or {@link #SKIP} if the last drawn frame already shows the needle
+     * at {@code angle}
+     */
+    public int onRest(final long frameTimeNanos, final float angle) {
+        mLastAngle = angle;
+        if (mDrawn && angle == mDrawnAngle) {
+            mSkippedFrames++;
+            return SKIP;
+        }
+        mDrawn = true;
+        mDrawnAngle = angle;
+        mDrawnNanos = frameTimeNanos;
+        mDrawnFrames++;
+        return DRAW;
+    }
+
+    private float toPixels(final float degrees) {
+        return Math.abs((float) Math.toRadians(degrees)) * mRadius;
+    }
+
+    public long getDrawnFrameCount() {
+        return mDrawnFrames;
+    }
+
+    public long getSkippedFrameCount() {
+        return mSkippedFrames;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.alex.testapp;
+
+/**
+ * The drawing operations a {@link GaugeScene} needs, in unit-square coordinates. Paints are
+ * referred to by role (see the {@code PAINT_} constants of {@link GaugeScene}), so that each
+ * implementation can map a role onto its own paint objects; the scene describes the color
+ * and stroke of every role.
+ * <p>
+ * On a device this is backed by an {@link android.graphics.Canvas}; the unit tests render
+ * through Java2D to check the output and the cost of drawing without a device.
+ */
+public interface GaugeCanvas {
+
+    void save();
+
+    void restore();
+
+    void rotate(float degrees, float px, float py);
+
+    /**
+     * Strokes the arc of the oval inscribed in the given bounds, angles in degrees clockwise
+     * from 3 o'clock.
+     */
+    void drawArc(float left, float top, float right, float bottom, float startAngle, float sweepAngle, int paint);
+
+    /**
+     * Strokes separate line segments, four floats per segment.
+     */
+    void drawLines(float[] points, int offset, int count, int paint);
+
+    /**
+     * Fills the closed polygon of the first {@code count} x, y pairs of {@code points}.
+     * The same array is passed on every call, so implementations may cache its path.
+     */
+    void drawPolygon(float[] points, int count, int paint);
+
+    void drawCircle(float cx, float cy, float radius, int paint);
+}
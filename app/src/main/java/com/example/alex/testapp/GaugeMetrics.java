@@ -0,0 +1,189 @@
+package com.example.alex.testapp;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Per-phase timing histograms and frame statistics of a gauge.
+ * <p>
+ * Instances only exist while metrics are enabled, so a disabled gauge pays a single null
+ * check per phase. All methods are meant to be called on the thread that draws the gauge.
+ */
+public class GaugeMetrics {
+
+    public interface Listener {
+        void onMetrics(GaugeMetrics metrics);
+    }
+
+    public static final int PHASE_DRAW = 0;
+    public static final int PHASE_DRAW_GAUGE = 1;
+    public static final int PHASE_DRAW_SCALE = 2;
+    public static final int PHASE_NEEDLE = 3;
+    public static final int PHASE_FRAME_INTERVAL = 4;
+    public static final int PHASE_COUNT = 5;
+
+    private static final String[] PHASE_NAMES = {"draw", "drawGauge", "drawScale", "needle", "frameInterval"};
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    public static final long FRAME_PERIOD_NANOS = 16666667L;
+
+    private final LatencyHistogram[] mPhases = new LatencyHistogram[PHASE_COUNT];
+    private long mFramePeriodNanos = FRAME_PERIOD_NANOS;
+
+    private long mFrames;
+    private long mLateFrames;
+    private long mDroppedFrames;
+    private long mAllocations;
+    private long mStartNanos = System.nanoTime();
+
+    private Listener mListener;
+    private int mListenerInterval;
+
+    public GaugeMetrics() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mPhases[i] = new LatencyHistogram();
+        }
+    }
+
+    public static String getPhaseName(final int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    public void setFramePeriodNanos(final long framePeriodNanos) {
+        mFramePeriodNanos = framePeriodNanos;
+    }
+
+    /**
+     * Calls {@code listener} after every {@code intervalFrames} recorded frames.
+     */
+    public void setListener(final Listener listener, final int intervalFrames) {
+        mListener = listener;
+        mListenerInterval = Math.max(1, intervalFrames);
+    }
+
+    public long begin() {
+        return System.nanoTime();
+    }
+
+    public void end(final int phase, final long beginNanos) {
+        mPhases[phase].record(System.nanoTime() - beginNanos);
+    }
+
+    public void recordAllocations(final long count) {
+        mAllocations += count;
+    }
+
+    /**
+     * Records an animation frame. A frame that arrives more than half a period late counts
+     * as late, and every whole period skipped counts as a dropped frame.
+     *
+     * @param previousFrameNanos time of the previous frame, or -1 for the first one
+     */
+    public void recordFrame(final long frameTimeNanos, final long previousFrameNanos) {
+        mFrames++;
+        if (-1 != previousFrameNanos) {
+            final long interval = frameTimeNanos - previousFrameNanos;
+            mPhases[PHASE_FRAME_INTERVAL].record(interval);
+            if (interval > mFramePeriodNanos + mFramePeriodNanos / 2) {
+                mLateFrames++;
+                mDroppedFrames += (interval + mFramePeriodNanos / 2) / mFramePeriodNanos - 1;
+            }
+        }
+        if (null != mListener && 0 == mFrames % mListenerInterval) {
+            mListener.onMetrics(this);
+        }
+    }
+
+    public LatencyHistogram getHistogram(final int phase) {
+        return mPhases[phase];
+    }
+
+    public long getFrameCount() {
+        return mFrames;
+    }
+
+    public long getLateFrameCount() {
+        return mLateFrames;
+    }
+
+    public long getDroppedFrameCount() {
+        return mDroppedFrames;
+    }
+
+    public long getAllocationCount() {
+        return mAllocations;
+    }
+
+    public void reset() {
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            mPhases[i].reset();
+        }
+        mFrames = 0;
+        mLateFrames = 0;
+        mDroppedFrames = 0;
+        mAllocations = 0;
+        mStartNanos = System.nanoTime();
+    }
+
+    public void writeJson(final Appendable out) throws IOException {
+        out.append('{');
+        out.append("\"uptimeMs\":").append(Long.toString((System.nanoTime() - mStartNanos) / 1000000L));
+        out.append(",\"frames\":").append(Long.toString(mFrames));
+        out.append(",\"lateFrames\":").append(Long.toString(mLateFrames));
+        out.append(",\"droppedFrames\":").append(Long.toString(mDroppedFrames));
+        out.append(",\"allocations\":").append(Long.toString(mAllocations));
+        out.append(",\"phases\":{");
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            final LatencyHistogram histogram = mPhases[i];
+            if (i > 0) out.append(',');
+            out.append('"').append(PHASE_NAMES[i]).append("\":{");
+            out.append("\"count\":").append(Long.toString(histogram.getCount()));
+            out.append(",\"minNs\":").append(Long.toString(histogram.getMin()));
+            out.append(",\"meanNs\":").append(Long.toString(Math.round(histogram.getMean())));
+            out.append(",\"maxNs\":").append(Long.toString(histogram.getMax()));
+            for (final double percentile : PERCENTILES) {
+                out.append(",\"p").append(percentileLabel(percentile)).append("Ns\":")
+                        .append(Long.toString(histogram.getValueAtPercentile(percentile)));
+            }
+            out.append('}');
+        }
+        out.append("}}");
+    }
+
+    public void writeText(final Appendable out) throws IOException {
+        out.append(String.format(Locale.US, "frames=%d late=%d dropped=%d allocations=%d%n",
+                mFrames, mLateFrames, mDroppedFrames, mAllocations));
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            final LatencyHistogram histogram = mPhases[i];
+            out.append(String.format(Locale.US, "%-14s n=%-8d mean=%9.1fus p50=%9.1fus p99=%9.1fus max=%9.1fus%n",
+                    PHASE_NAMES[i], histogram.getCount(), histogram.getMean() / 1000.0,
+                    histogram.getValueAtPercentile(50.0) / 1000.0, histogram.getValueAtPercentile(99.0) / 1000.0,
+                    histogram.getMax() / 1000.0));
+        }
+    }
+
+    /**
+     * Writes a snapshot to {@code file}, replacing its contents.
+     */
+    public void writeTo(final File file, final boolean json) throws IOException {
+        final Writer out = new FileWriter(file);
+        try {
+            if (json) {
+                writeJson(out);
+            } else {
+                writeText(out);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String percentileLabel(final double percentile) {
+        return (percentile == Math.rint(percentile))
+                ? Long.toString((long) percentile)
+                : Double.toString(percentile).replace('.', '_');
+    }
+}
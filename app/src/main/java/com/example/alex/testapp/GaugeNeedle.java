@@ -0,0 +1,64 @@
+package com.example.alex.testapp;
+
+import android.graphics.Paint;
+
+/**
+ * An additional needle of a {@link GaugeView}, e.g. a cruise set point or a limit. It shares
+ * the gauge's scale and static layer, and is drawn beneath the main needle in its own shape
+ * and color.
+ */
+public final class GaugeNeedle {
+
+    private final int mColor;
+    private final float mWidth;
+    private final float mHeight;
+    private final float[] mPolygon;
+    private final float[] mOutline;
+    // Drawn through an adapter of its own, which caches the polygon's path
+    private final AndroidGaugeCanvas mCanvas;
+
+    /**
+     * @param width  half the width of the needle's base, in the unit square
+     * @param height length of the needle, in the unit square
+     */
+    public GaugeNeedle(final int color, final float width, final float height) {
+        mColor = color;
+        mWidth = width;
+        mHeight = height;
+        mPolygon = GaugeScene.createNeedle(width, height);
+        mOutline = GaugeScene.createNeedleOutline(width, height);
+
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        final Paint[] paints = new Paint[GaugeScene.PAINT_NEEDLE + 1];
+        paints[GaugeScene.PAINT_NEEDLE] = paint;
+        mCanvas = new AndroidGaugeCanvas(paints);
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public float getWidth() {
+        return mWidth;
+    }
+
+    public float getHeight() {
+        return mHeight;
+    }
+
+    float[] getPolygon() {
+        return mPolygon;
+    }
+
+    /**
+     * Outline of the needle pointing North, as x, y pairs in the unit square.
+     */
+    public float[] getOutline() {
+        return mOutline;
+    }
+
+    AndroidGaugeCanvas getCanvas() {
+        return mCanvas;
+    }
+}
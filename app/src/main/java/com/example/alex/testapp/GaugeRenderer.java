@@ -0,0 +1,540 @@
+package com.example.alex.testapp;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+
+import static com.example.alex.testapp.GaugeView.*;
+
+/**
+ * The drawing routines of a gauge (rim, face, scale, needle and text) together with the
+ * geometry and paints they need. The style itself is a shared, compiled {@link GaugeStyle}.
+ * <p>
+ * Everything is drawn in a unit square; callers set up the canvas with
+ * {@link #fitUnitSquare(Canvas, int, int)}. The paints come from the style and are shared
+ * by every renderer of it, but a renderer also holds state for the size it was prepared for:
+ * the needle and digit atlases and the readout bounds. A renderer therefore belongs to one
+ * view; only gauges drawn at the same size, like the cells of a {@link DashboardView}, may
+ * share one.
+ */
+public class GaugeRenderer {
+
+    private final GaugeStyle mStyle;
+    private final GaugeScale mScale;
+    private final GaugeScene mScene;
+    private final Paint[] mScenePaints;
+
+    private RectF mOuterShadowRect;
+    private RectF mOuterBorderRect;
+    private RectF mOuterRimRect;
+
+    private RectF mFaceRect;
+    private RectF mScaleRect;
+
+    private Paint mBitmapPaint;
+
+    private Paint mFacePaint;
+
+    private Paint mTextValuePaint;
+    private Paint mTextShadowPaint;
+
+    private DigitAtlas mDigitAtlas;
+    private NeedleAtlas mNeedleAtlas;
+    private int mAtlasGeneration;
+    private final char[] mReadoutChars = new char[ValueFormat.MAX_LENGTH];
+    private final RectF mReadoutBounds = new RectF();
+
+    private AndroidGaugeCanvas mNeedleCanvas;
+    private AndroidGaugeCanvas mMarkerCanvas;
+
+    public GaugeRenderer(final Context context, final AttributeSet attrs, final int defStyleAttr,
+                         final int defStyleRes) {
+        this(GaugeStyle.obtain(context, attrs, defStyleAttr, defStyleRes));
+    }
+
+    /**
+     * Creates a renderer from a style resource holding {@code gauge:} attributes, e.g. for the
+     * gauges of a {@link DashboardView}.
+     */
+    public GaugeRenderer(final Context context, final int styleRes) {
+        this(context, null, 0, styleRes);
+    }
+
+    public GaugeRenderer(final Context context) {
+        this(context, null, 0, 0);
+    }
+
+    /**
+     * Creates a renderer for an already compiled style. Its scale, scene and scene paints are
+     * shared with every other renderer of that style.
+     */
+    public GaugeRenderer(final GaugeStyle style) {
+        mStyle = style;
+        mScale = style.getScale();
+        mScene = style.getScene();
+        mScenePaints = style.getScenePaints();
+        init();
+    }
+
+    private void init() {
+        initDrawingRects();
+        initDrawingTools();
+    }
+
+    public void initDrawingRects() {
+        // The drawing area is a rectangle of width 1 and height 1,
+        // where (0,0) is the top left corner of the canvas.
+        // Note that on Canvas X axis points to right, while the Y axis points downwards.
+        mOuterShadowRect = new RectF(LEFT, TOP, RIGHT, BOTTOM);
+
+        mOuterBorderRect = new RectF(mOuterShadowRect.left + OUTER_BORDER_WIDTH/2 , mOuterShadowRect.top + OUTER_BORDER_WIDTH/2,
+                mOuterShadowRect.right - OUTER_BORDER_WIDTH/2 , mOuterShadowRect.bottom - OUTER_BORDER_WIDTH/2);
+
+        mOuterRimRect = new RectF(mOuterBorderRect.left + mStyle.getOuterBorderWidth(), mOuterBorderRect.top + mStyle.getOuterBorderWidth(),
+                mOuterBorderRect.right - mStyle.getOuterBorderWidth(), mOuterBorderRect.bottom - mStyle.getOuterBorderWidth());
+
+        mFaceRect = new RectF(mOuterRimRect.left , mOuterRimRect.top ,
+                mOuterRimRect.right , mOuterRimRect.bottom );
+
+        mScaleRect = new RectF(mFaceRect.left + mStyle.getScalePosition(), mFaceRect.top + mStyle.getScalePosition(), mFaceRect.right - mStyle.getScalePosition(),
+                mFaceRect.bottom - mStyle.getScalePosition());
+    }
+
+    private void initDrawingTools() {
+        mBitmapPaint = new Paint();
+        mBitmapPaint.setFilterBitmap(true);
+
+        if (mStyle.isShowNeedle()) {
+            mNeedleCanvas = new AndroidGaugeCanvas(mScenePaints);
+        }
+        mMarkerCanvas = new AndroidGaugeCanvas(mScenePaints);
+        // Text paints are resized while drawing, so every renderer has its own
+        if (mStyle.isShowText()) {
+            mTextValuePaint = getDefaultTextValuePaint();
+            if (!isSoftwareRendered()) {
+                mTextShadowPaint = getDefaultTextShadowPaint();
+            }
+        }
+
+        mFacePaint = getDefaultFacePaint();
+    }
+
+    public Paint getDefaultFacePaint() {
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.rgb(255, 255, 255));
+        return paint;
+    }
+
+
+    public Paint getDefaultTextValuePaint() {
+        final Paint paint = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setStyle(Paint.Style.FILL_AND_STROKE);
+        paint.setStrokeWidth(0.005f);
+        paint.setTextSize(mStyle.getTextValueSize());
+        paint.setTextAlign(Align.CENTER);
+        paint.setTypeface(Typeface.SANS_SERIF);
+        if (isSoftwareRendered()) {
+            paint.setShadowLayer(0.01f, TEXT_SHADOW_OFFSET, TEXT_SHADOW_OFFSET, mStyle.getTextShadowColor());
+        }
+        return paint;
+    }
+
+    /**
+     * Blur-free replacement for the text shadow layer, drawn as an offset pass underneath the
+     * text when the view is hardware rendered.
+     */
+    public Paint getDefaultTextShadowPaint() {
+        final Paint paint = getDefaultTextValuePaint();
+        paint.setColor(mStyle.getTextShadowColor());
+        return paint;
+    }
+
+    /**
+     * The value paint converted to pixels for rasterizing the digit atlas. The atlas is always
+     * drawn in software, so the shadow layer is kept in both render modes.
+     */
+    public Paint getReadoutPaint(final float pixelsPerUnit) {
+        final float textScale = pixelsPerUnit / TEXT_MAGNIFIER;
+        final Paint paint = getDefaultTextValuePaint();
+        paint.setTextSize(mStyle.getTextValueSize() * pixelsPerUnit);
+        paint.setStrokeWidth(0.005f * textScale);
+        paint.setShadowLayer(0.01f * textScale, TEXT_SHADOW_OFFSET * textScale, TEXT_SHADOW_OFFSET * textScale,
+                mStyle.getTextShadowColor());
+        return paint;
+    }
+
+    public Paint getDefaultTextUnitPaint() {
+        final Paint paint = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setStyle(Paint.Style.FILL_AND_STROKE);
+        paint.setStrokeWidth(0.005f);
+        paint.setTextSize(mStyle.getTextUnitSize());
+        paint.setTextAlign(Align.CENTER);
+        if (isSoftwareRendered()) {
+            paint.setShadowLayer(0.01f, TEXT_SHADOW_OFFSET, TEXT_SHADOW_OFFSET, mStyle.getTextShadowColor());
+        }
+        return paint;
+    }
+
+    /**
+     * Prepares the size dependent resources, i.e. the digit atlas of the readout and the
+     * needle sprites. Cheap when the size did not change.
+     */
+    public void prepare(final float pixelsPerUnit) {
+        if (pixelsPerUnit <= 0) {
+            return;
+        }
+        if (mStyle.isShowNeedle() && NEEDLE_MODE_SPRITE == mStyle.getNeedleMode()) {
+            prepareNeedleAtlas(pixelsPerUnit);
+        }
+        if (mStyle.isShowText()) {
+            prepareDigitAtlas(pixelsPerUnit);
+        }
+    }
+
+    /**
+     * Like {@link #prepare(float)}, but builds the needle sprites on the prerender thread. The
+     * needle is drawn as vectors until they are swapped in on the main thread, after which
+     * {@code done} runs there. A later prepare supersedes a pending one.
+     */
+    public void prepareAsync(final float pixelsPerUnit, final Runnable done) {
+        if (pixelsPerUnit <= 0) {
+            return;
+        }
+        if (mStyle.isShowText()) {
+            prepareDigitAtlas(pixelsPerUnit);
+        }
+        if (!mStyle.isShowNeedle() || NEEDLE_MODE_SPRITE != mStyle.getNeedleMode()
+                || (null != mNeedleAtlas && mNeedleAtlas.matches(pixelsPerUnit))) {
+            return;
+        }
+        final int generation = ++mAtlasGeneration;
+        if (null != mNeedleAtlas) {
+            mNeedleAtlas.recycle();
+            mNeedleAtlas = null;
+        }
+        final Handler handler = new Handler(Looper.getMainLooper());
+        BackgroundCache.getInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                final NeedleAtlas atlas = NeedleAtlas.create(mScene, mScenePaints, pixelsPerUnit,
+                        mStyle.getNeedleSprites(), mStyle.getNeedleAtlasMaxBytes(), mStyle.isNeedleSpriteBlend());
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mAtlasGeneration) {
+                            if (null != atlas) {
+                                atlas.recycle();
+                            }
+                            return;
+                        }
+                        mNeedleAtlas = atlas;
+                        if (null != done) {
+                            done.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void prepareNeedleAtlas(final float pixelsPerUnit) {
+        // Drops a pending asynchronous one
+        mAtlasGeneration++;
+        if (null != mNeedleAtlas) {
+            if (mNeedleAtlas.matches(pixelsPerUnit)) {
+                return;
+            }
+            mNeedleAtlas.recycle();
+        }
+        // Stays null, i.e. vector drawing, if the budget is too small for this size
+        mNeedleAtlas = NeedleAtlas.create(mScene, mScenePaints, pixelsPerUnit, mStyle.getNeedleSprites(),
+                mStyle.getNeedleAtlasMaxBytes(), mStyle.isNeedleSpriteBlend());
+    }
+
+    private void prepareDigitAtlas(final float pixelsPerUnit) {
+        final Paint paint = getReadoutPaint(pixelsPerUnit);
+        if (null != mDigitAtlas) {
+            if (mDigitAtlas.matches(paint.getTextSize(), paint.getColor())) {
+                return;
+            }
+            mDigitAtlas.recycle();
+        }
+        final float textScale = pixelsPerUnit / TEXT_MAGNIFIER;
+        mDigitAtlas = new DigitAtlas(paint, (int) Math.ceil((0.01f + TEXT_SHADOW_OFFSET) * textScale) + 1);
+        initReadoutBounds(pixelsPerUnit, paint);
+    }
+
+    private void initReadoutBounds(final float scale, final Paint paint) {
+        // Widest readout the scale can produce, with the shadow and a digit of slack
+        final int length = Math.max(ValueFormat.format(mStyle.getScaleStartValue(), 0, mReadoutChars),
+                ValueFormat.format(mStyle.getScaleEndValue(), 0, mReadoutChars)) + 1;
+        for (int i = 0; i < length; i++) {
+            mReadoutChars[i] = '8';
+        }
+        final float halfWidth = mDigitAtlas.measure(mReadoutChars, length) / scale / 2;
+        final float baseline = CENTER + 0.1f + TEXT_OFFSET_Y / TEXT_MAGNIFIER;
+        final Paint.FontMetrics metrics = paint.getFontMetrics();
+        mReadoutBounds.set(CENTER - halfWidth, baseline + metrics.ascent / scale,
+                CENTER + halfWidth, baseline + metrics.descent / scale);
+        mReadoutBounds.inset(-0.02f, -0.02f);
+    }
+
+    /**
+     * Scales and centers the canvas so that the unit square fills the largest square that fits
+     * in {@code width} x {@code height}.
+     *
+     * @return the number of pixels per unit
+     */
+    public static float fitUnitSquare(final Canvas canvas, final int width, final int height) {
+        final float scale = Math.min(width, height);
+        canvas.scale(scale, scale);
+        canvas.translate((scale == height) ? ((width - scale) / 2) / scale : 0
+                , (scale == width) ? ((height - scale) / 2) / scale : 0);
+        return scale;
+    }
+
+    /**
+     * Draws everything that does not move onto a blank canvas of the given size.
+     *
+     * @param metrics receives the scale timing, may be null
+     */
+    public void drawStaticLayer(final Canvas canvas, final int width, final int height, final GaugeMetrics metrics) {
+        canvas.save();
+        fitUnitSquare(canvas, width, height);
+
+        drawFace(canvas);
+
+        final long start = (null != metrics) ? metrics.begin() : 0;
+        // May run on a prerender thread, so it gets its own adapter
+        mScene.drawStaticLayer(new AndroidGaugeCanvas(mScenePaints).setCanvas(canvas));
+        if (null != metrics) {
+            metrics.end(GaugeMetrics.PHASE_DRAW_SCALE, start);
+        }
+        canvas.restore();
+    }
+
+    /**
+     * The static layer as a {@link BackgroundCache} renderer, without metrics.
+     */
+    public BackgroundCache.Renderer asBackgroundRenderer() {
+        return mStaticLayerRenderer;
+    }
+
+    private final BackgroundCache.Renderer mStaticLayerRenderer = new BackgroundCache.Renderer() {
+        @Override
+        public void render(final Canvas canvas, final int width, final int height) {
+            drawStaticLayer(canvas, width, height, null);
+        }
+    };
+
+    public void drawFace(final Canvas canvas) {
+        // Draw the face gradient
+        mFacePaint.setColor(Color.WHITE);
+//        canvas.drawArc(mFaceRect, 130, 280, false, mFacePaint);
+
+    }
+
+    public void drawNeedle(final Canvas canvas, final float value) {
+        if (null != mNeedleAtlas) {
+            mNeedleAtlas.draw(canvas, getAngleForValue(value), mBitmapPaint);
+        } else {
+            mScene.drawNeedle(mNeedleCanvas.setCanvas(canvas), value);
+        }
+    }
+
+    /**
+     * Draws an additional needle at {@code value}, without the screw.
+     */
+    public void drawNeedle(final Canvas canvas, final float value, final GaugeNeedle needle) {
+        mScene.drawNeedleBody(needle.getCanvas().setCanvas(canvas), getAngleForValue(value), needle.getPolygon(),
+                GaugeScene.PAINT_NEEDLE);
+    }
+
+    /**
+     * Draws the session minimum, maximum and average and the peak held over the window as
+     * markers on the scale.
+     */
+    public void drawMarkers(final Canvas canvas, final RollingStats stats) {
+        if (0 == stats.getSessionCount()) {
+            return;
+        }
+        final AndroidGaugeCanvas markerCanvas = mMarkerCanvas.setCanvas(canvas);
+        mScene.drawMarker(markerCanvas, stats.getSessionMin(), GaugeScene.PAINT_MARKER_RANGE);
+        mScene.drawMarker(markerCanvas, stats.getSessionMax(), GaugeScene.PAINT_MARKER_RANGE);
+        mScene.drawMarker(markerCanvas, stats.getSessionAverage(), GaugeScene.PAINT_MARKER_AVERAGE);
+        if (stats.getWindowCount() > 0) {
+            mScene.drawMarker(markerCanvas, stats.getWindowMax(), GaugeScene.PAINT_MARKER_PEAK);
+        }
+    }
+
+    /**
+     * Draws the readout for {@code value} (or the fixed text value) and the unit label.
+     *
+     * @param pixelsPerUnit the scale the canvas was set up with, see {@link #prepare(float)}
+     */
+    public void drawText(final Canvas canvas, final float value, final float pixelsPerUnit) {
+        final float startY = CENTER + 0.1f;
+
+        if (!TextUtils.isEmpty(mStyle.getTextValue())) {
+            drawShadowedText(canvas, mStyle.getTextValue(), CENTER, startY);
+        } else {
+            drawReadout(canvas, value, CENTER, startY, pixelsPerUnit);
+        }
+        if (!TextUtils.isEmpty(mStyle.getTextUnit())) {
+            drawShadowedText(canvas, mStyle.getTextUnit(), CENTER, startY + 0.12f);
+        }
+    }
+
+    private void drawShadowedText(final Canvas canvas, final String text, final float x, final float y) {
+        if (null != mTextShadowPaint) {
+            drawText(canvas, text, x + TEXT_SHADOW_OFFSET, y + TEXT_SHADOW_OFFSET, mTextShadowPaint);
+        }
+        drawText(canvas, text, x, y, mTextValuePaint);
+    }
+
+    private void drawReadout(final Canvas canvas, final float value, final float x, final float y,
+                             final float pixelsPerUnit) {
+        if (null == mDigitAtlas) {
+            drawShadowedText(canvas, valueString(value), x, y);
+            return;
+        }
+        final int length = ValueFormat.format(value, 0, mReadoutChars);
+        mDigitAtlas.draw(canvas, mReadoutChars, length, x, y + TEXT_OFFSET_Y / TEXT_MAGNIFIER,
+                pixelsPerUnit, mBitmapPaint);
+    }
+
+
+    private void drawText(Canvas canvas, String value, float x, float y, Paint paint)
+    {
+        //Save original font size
+        float originalTextSize = paint.getTextSize();
+
+        // set a magnification factor
+        final float magnifier = TEXT_MAGNIFIER;
+
+        // Scale the canvas
+        canvas.save();
+        canvas.scale(1f / magnifier, 1f / magnifier);
+
+        // increase the font size
+        paint.setTextSize(originalTextSize * magnifier);
+
+        canvas.drawText(value, x*magnifier, (y * magnifier) + TEXT_OFFSET_Y,paint );
+
+//        canvas.drawTextOnPath(value, textPath, 0.0f, 0.0f, paint);
+
+        // bring everything back to normal
+        canvas.restore();
+        paint.setTextSize(originalTextSize);
+    }
+
+
+    private String valueString(final float value) {
+        return ValueFormat.valueString(value);
+    }
+
+    public float getAngleForValue(final float value) {
+        return mScale.getAngleForValue(value);
+    }
+
+    /**
+     * Limits a target value to the scale, when there is one.
+     */
+    public float clampValue(final float value) {
+        if (mStyle.isShowScale() || mStyle.isShowRanges()) {
+            if (value < mStyle.getScaleStartValue()) {
+                return mStyle.getScaleStartValue();
+            } else if (value > mStyle.getScaleEndValue()) {
+                return mStyle.getScaleEndValue();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Everything that ends up in the static layer, which identifies the layer in the caches.
+     */
+    public StaticLayerSpec getStaticLayer() {
+        return mStyle.getStaticLayer();
+    }
+
+    /**
+     * Hash of everything that ends up in the static layer.
+     */
+    public int getStyleHash() {
+        return mStyle.getStyleHash();
+    }
+
+    public boolean isSoftwareRendered() {
+        return RENDER_MODE_SOFTWARE == mStyle.getRenderMode();
+    }
+
+    public boolean isShowNeedle() {
+        return mStyle.isShowNeedle();
+    }
+
+    /**
+     * Distance from the pivot to the needle tip in the unit square.
+     */
+    public float getNeedleLength() {
+        return mStyle.getNeedleHeight();
+    }
+
+    public boolean isShowText() {
+        return mStyle.isShowText();
+    }
+
+    /**
+     * True when the text changes with the value, i.e. no fixed text value is set.
+     */
+    public boolean isShowReadout() {
+        return mStyle.isShowText() && TextUtils.isEmpty(mStyle.getTextValue());
+    }
+
+    public GaugeStyle getStyle() {
+        return mStyle;
+    }
+
+    public GaugeScale getScale() {
+        return mScale;
+    }
+
+    /**
+     * @return the needle sprites, or null while the needle is drawn as vectors
+     */
+    public NeedleAtlas getNeedleAtlas() {
+        return mNeedleAtlas;
+    }
+
+    public GaugeScene getScene() {
+        return mScene;
+    }
+
+    /**
+     * Outline of the needle pointing North, as x, y pairs in the unit square.
+     */
+    public float[] getNeedlePoints() {
+        return mScene.getNeedleOutline();
+    }
+
+    /**
+     * Box the readout can occupy in the unit square, valid after {@link #prepare(float)}.
+     */
+    public RectF getReadoutBounds() {
+        return mReadoutBounds;
+    }
+
+    public Paint getBitmapPaint() {
+        return mBitmapPaint;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.alex.testapp;
+
+/**
+ * Scale math shared by the gauge drawing code: value to angle mapping, tick values and
+ * range lookup. Free of Android dependencies so it can be benchmarked on a plain JVM.
+ */
+public class GaugeScale {
+
+    private final float mStartValue;
+    private final float mEndValue;
+    private final float mStartAngle;
+    private final int mDivisions;
+    private final int mSubdivisions;
+    private final float[] mRangeValues;
+
+    private final float mRotation;
+    private final float mDivisionValue;
+    private final float mSubdivisionValue;
+    private final float mSubdivisionAngle;
+
+    public GaugeScale(final float startValue, final float endValue, final float startAngle,
+                      final int divisions, final int subdivisions, final float[] rangeValues) {
+        mStartValue = startValue;
+        mEndValue = endValue;
+        mStartAngle = startAngle;
+        mDivisions = divisions;
+        mSubdivisions = subdivisions;
+        mRangeValues = rangeValues;
+
+        mRotation = (startAngle + 180) % 360;
+        mDivisionValue = (endValue - startValue) / divisions;
+        mSubdivisionValue = mDivisionValue / subdivisions;
+        mSubdivisionAngle = (360 - 2 * startAngle) / (divisions * subdivisions);
+    }
+
+    public float getStartValue() {
+        return mStartValue;
+    }
+
+    public float getEndValue() {
+        return mEndValue;
+    }
+
+    public float getStartAngle() {
+        return mStartAngle;
+    }
+
+    public int getDivisions() {
+        return mDivisions;
+    }
+
+    public int getSubdivisions() {
+        return mSubdivisions;
+    }
+
+    public float[] getRangeValues() {
+        return mRangeValues;
+    }
+
+    public float getRotation() {
+        return mRotation;
+    }
+
+    public float getSubdivisionAngle() {
+        return mSubdivisionAngle;
+    }
+
+    public int getTotalTicks() {
+        return mDivisions * mSubdivisions + 1;
+    }
+
+    public float getValueForTick(final int tick) {
+        return tick * (mDivisionValue / mSubdivisions);
+    }
+
+    public boolean isDivisionTick(final float value) {
+        final float div = mEndValue / (float) mDivisions;
+        final float mod = value % div;
+        return (Math.abs(mod - 0) < 0.001) || (Math.abs(mod - div) < 0.001);
+    }
+
+    public float getAngleForValue(final float value) {
+        return (mRotation + (value / mSubdivisionValue) * mSubdivisionAngle) % 360;
+    }
+
+    /**
+     * Finds the range a value falls in by binary search over the (ascending) range
+     * boundaries: the first range whose boundary is above the value, with the last boundary
+     * itself inclusive.
+     */
+    public int getRangeIndex(final float value) {
+        final int last = mRangeValues.length - 1;
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (value < mRangeValues[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        if (low < last || value <= mRangeValues[last]) return low;
+        throw new IllegalArgumentException("Value " + value + " out of range!");
+    }
+}
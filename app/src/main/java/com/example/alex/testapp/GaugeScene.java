@@ -0,0 +1,193 @@
+package com.example.alex.testapp;
+
+import android.graphics.Color;
+
+/**
+ * The geometry of a gauge's rim, scale and needle and the paint of each part, drawn onto any
+ * {@link GaugeCanvas}. Free of Android drawing classes, so the same drawing code runs on a
+ * device and in headless tests.
+ */
+public class GaugeScene {
+
+    public static final int PAINT_RIM = 0;
+    public static final int PAINT_NEEDLE = 1;
+    public static final int PAINT_SCREW = 2;
+    public static final int PAINT_MARKER_PEAK = 3;
+    public static final int PAINT_MARKER_RANGE = 4;
+    public static final int PAINT_MARKER_AVERAGE = 5;
+    /**
+     * Ticks of range {@code r} are drawn with paint {@code PAINT_TICKS + r}.
+     */
+    public static final int PAINT_TICKS = 6;
+
+    public static final float RIM_START_ANGLE = 130.0f;
+    public static final float RIM_SWEEP_ANGLE = 280.0f;
+    public static final float TICK_STROKE_WIDTH = 0.01f;
+    // rgb(87, 97, 114), spelled out so the scene loads without the Android runtime
+    public static final int DIVISION_COLOR = 0xFF576172;
+    public static final int MARKER_PEAK_COLOR = 0xFFE7202B;
+    public static final int MARKER_AVERAGE_COLOR = 0xFF1B8ACA;
+    public static final float MARKER_SIZE = 0.04f;
+
+    private final GaugeScale mScale;
+    private final CompiledScale mTicks;
+    private final boolean mShowOuterBorder;
+    private final float mRimInset;
+    private final float[] mNeedle;
+    private final float[] mNeedleOutline;
+    private final float[] mMarker;
+
+    /**
+     * @param outerBorderWidth  space taken by the border, 0 without one
+     * @param scalePosition     inset of the scale from the face
+     * @param showRanges        whether there is a scale to draw
+     */
+    public GaugeScene(final GaugeScale scale, final boolean showOuterBorder, final float outerBorderWidth,
+                      final boolean showRanges, final float scalePosition,
+                      final float needleWidth, final float needleHeight) {
+        mScale = scale;
+        mShowOuterBorder = showOuterBorder;
+        mRimInset = GaugeView.OUTER_BORDER_WIDTH / 2;
+        mTicks = showRanges ? new CompiledScale(scale, mRimInset + outerBorderWidth + scalePosition) : null;
+
+        final float x = GaugeView.CENTER;
+        mNeedle = createNeedle(needleWidth, needleHeight);
+        mNeedleOutline = createNeedleOutline(needleWidth, needleHeight);
+        // A wedge on the scale line pointing inwards, at North
+        final float top = mRimInset + outerBorderWidth + scalePosition;
+        mMarker = new float[]{x - MARKER_SIZE / 3, top, x + MARKER_SIZE / 3, top, x, top + MARKER_SIZE};
+    }
+
+    /**
+     * The filled needle pointing North; only its left half is filled, as it always has been.
+     */
+    public static float[] createNeedle(final float width, final float height) {
+        final float x = GaugeView.CENTER, y = GaugeView.CENTER;
+        return new float[]{x, y, x - width, y, x, y - height};
+    }
+
+    /**
+     * Both halves of the needle, for the region a moving needle dirties.
+     */
+    public static float[] createNeedleOutline(final float width, final float height) {
+        final float x = GaugeView.CENTER, y = GaugeView.CENTER;
+        return new float[]{x - width, y, x + width, y, x, y - height};
+    }
+
+    public GaugeScale getScale() {
+        return mScale;
+    }
+
+    public int getPaintCount() {
+        return PAINT_TICKS + ((null != mTicks) ? mTicks.getRangeCount() : 0);
+    }
+
+    public int getColor(final int paint) {
+        switch (paint) {
+            case PAINT_RIM:
+            case PAINT_NEEDLE:
+            case PAINT_SCREW:
+                return Color.BLACK;
+            case PAINT_MARKER_PEAK:
+                return MARKER_PEAK_COLOR;
+            case PAINT_MARKER_AVERAGE:
+                return MARKER_AVERAGE_COLOR;
+            default:
+                return DIVISION_COLOR;
+        }
+    }
+
+    /**
+     * @return the stroke width, or 0 for a filled paint
+     */
+    public float getStrokeWidth(final int paint) {
+        switch (paint) {
+            case PAINT_RIM:
+                return GaugeView.OUTER_BORDER_WIDTH;
+            case PAINT_NEEDLE:
+            case PAINT_SCREW:
+            case PAINT_MARKER_PEAK:
+            case PAINT_MARKER_RANGE:
+            case PAINT_MARKER_AVERAGE:
+                return 0.0f;
+            default:
+                return TICK_STROKE_WIDTH;
+        }
+    }
+
+    /**
+     * Rim and scale, i.e. everything that goes into the cached background.
+     */
+    public void drawStaticLayer(final GaugeCanvas canvas) {
+        if (mShowOuterBorder) {
+            canvas.drawArc(mRimInset, mRimInset, 1.0f - mRimInset, 1.0f - mRimInset,
+                    RIM_START_ANGLE, RIM_SWEEP_ANGLE, PAINT_RIM);
+        }
+        if (null != mTicks) {
+            // One batch per range; the tick endpoints are already rotated into place
+            final int ranges = mTicks.getRangeCount();
+            for (int r = 0; r < ranges; r++) {
+                final int count = mTicks.getLineFloatCount(r);
+                if (0 != count) {
+                    canvas.drawLines(mTicks.getLines(r), 0, count, PAINT_TICKS + r);
+                }
+            }
+        }
+    }
+
+    public void drawNeedle(final GaugeCanvas canvas, final float value) {
+        drawNeedleAtAngle(canvas, mScale.getAngleForValue(value));
+    }
+
+    public void drawNeedleAtAngle(final GaugeCanvas canvas, final float angle) {
+        drawNeedleBody(canvas, angle);
+        drawScrew(canvas);
+    }
+
+    /**
+     * The needle without its screw, rotated by {@code angle} degrees about the center.
+     */
+    public void drawNeedleBody(final GaugeCanvas canvas, final float angle) {
+        drawNeedleBody(canvas, angle, mNeedle, PAINT_NEEDLE);
+    }
+
+    /**
+     * Another needle, e.g. from {@link #createNeedle(float, float)}, rotated by {@code angle}.
+     */
+    public void drawNeedleBody(final GaugeCanvas canvas, final float angle, final float[] needle, final int paint) {
+        canvas.save();
+        canvas.rotate(angle, GaugeView.CENTER, GaugeView.CENTER);
+        canvas.drawPolygon(needle, needle.length / 2, paint);
+        canvas.restore();
+    }
+
+    public void drawScrew(final GaugeCanvas canvas) {
+        canvas.drawCircle(GaugeView.CENTER, GaugeView.CENTER, GaugeView.NEEDLE_SCREW_RADIUS, PAINT_SCREW);
+    }
+
+    /**
+     * Draws a statistics marker at {@code value} on the scale, e.g. a held peak.
+     *
+     * @param paint one of the {@code PAINT_MARKER_} roles
+     */
+    public void drawMarker(final GaugeCanvas canvas, final float value, final int paint) {
+        canvas.save();
+        canvas.rotate(mScale.getAngleForValue(value), GaugeView.CENTER, GaugeView.CENTER);
+        canvas.drawPolygon(mMarker, mMarker.length / 2, paint);
+        canvas.restore();
+    }
+
+    /**
+     * Outline of a marker pointing North, as x, y pairs in the unit square.
+     */
+    public float[] getMarkerOutline() {
+        return mMarker;
+    }
+
+    /**
+     * Outline of the needle pointing North, as x, y pairs in the unit square.
+     */
+    public float[] getNeedleOutline() {
+        return mNeedleOutline;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.alex.testapp;
+
+import java.util.Locale;
+
+/**
+ * Startup timeline of a gauge, from the start of its construction until the first frame
+ * that shows the static layer. Times are in nanoseconds since construction started.
+ * <p>
+ * The listener is called once, on the thread that records the last of {@link #FIRST_FRAME}
+ * and {@link #LAYER_READY}.
+ */
+public class GaugeStartup {
+
+    public interface Listener {
+        void onStartup(GaugeStartup startup);
+    }
+
+    public static final int CONSTRUCTED = 0;
+    public static final int LAID_OUT = 1;
+    // First frame of any kind, possibly the needle alone
+    public static final int FIRST_FRAME = 2;
+    // First frame with the static layer
+    public static final int LAYER_READY = 3;
+    public static final int MARK_COUNT = 4;
+
+    private static final String[] MARK_NAMES = {"constructed", "laidOut", "firstFrame", "layerReady"};
+
+    private final long mStartNanos;
+    private final long[] mMarks = new long[MARK_COUNT];
+    private Listener mListener;
+    private boolean mReported;
+
+    public GaugeStartup(final long startNanos) {
+        mStartNanos = startNanos;
+        for (int i = 0; i < MARK_COUNT; i++) {
+            mMarks[i] = -1;
+        }
+    }
+
+    public static String getMarkName(final int mark) {
+        return MARK_NAMES[mark];
+    }
+
+    /**
+     * Sets the listener, calling it right away if startup is already complete.
+     */
+    public void setListener(final Listener listener) {
+        mListener = listener;
+        mReported = false;
+        reportIfComplete();
+    }
+
+    /**
+     * Records the first occurrence of {@code mark}; later ones are ignored.
+     */
+    public void mark(final int mark, final long nowNanos) {
+        if (-1 != mMarks[mark]) {
+            return;
+        }
+        mMarks[mark] = Math.max(nowNanos - mStartNanos, 0);
+        reportIfComplete();
+    }
+
+    public boolean isMarked(final int mark) {
+        return -1 != mMarks[mark];
+    }
+
+    /**
+     * @return the time of {@code mark} since construction started, or -1 if not reached yet
+     */
+    public long getNanos(final int mark) {
+        return mMarks[mark];
+    }
+
+    public boolean isComplete() {
+        return isMarked(FIRST_FRAME) && isMarked(LAYER_READY);
+    }
+
+    private void reportIfComplete() {
+        if (!mReported && null != mListener && isComplete()) {
+            mReported = true;
+            mListener.onStartup(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("GaugeStartup{");
+        for (int i = 0; i < MARK_COUNT; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(MARK_NAMES[i]).append('=');
+            sb.append(isMarked(i) ? String.format(Locale.US, "%.2fms", mMarks[i] / 1e6) : "-");
+        }
+        return sb.append('}').toString();
+    }
+}
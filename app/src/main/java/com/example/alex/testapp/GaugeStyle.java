@@ -0,0 +1,469 @@
+package com.example.alex.testapp;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Align;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.example.alex.testapp.GaugeView.*;
+
+/**
+ * The {@code gauge:} attributes of a gauge, compiled into the scale, the scene and the paints
+ * that only depend on them.
+ * <p>
+ * A style is immutable and shared: {@link #obtain(Context, AttributeSet, int, int)} returns
+ * the same instance for every inflation with the same attribute values, so the range arrays
+ * are parsed and the paints built once per style. The shared paints must not be modified.
+ */
+public final class GaugeStyle {
+
+    public static final int CACHE_SIZE = 16;
+
+    /**
+     * The attribute values as read, i.e. the cache key. Range arrays are kept as resource ids
+     * and only resolved on a miss, so the key also holds the parts of the configuration that
+     * select their resources; everything else, e.g. the orientation, doesn't split the cache.
+     */
+    private static final class Spec {
+        int mRenderMode;
+        boolean mShowOuterBorder;
+        boolean mShowNeedle;
+        boolean mShowScale;
+        boolean mShowRanges;
+        boolean mShowText = true;
+
+        float mOuterBorderWidth;
+        float mNeedleWidth;
+        float mNeedleHeight;
+        int mNeedleMode;
+        int mNeedleSprites;
+        boolean mNeedleSpriteBlend;
+        int mNeedleAtlasMaxBytes;
+
+        float mScalePosition;
+        float mScaleStartValue;
+        float mScaleEndValue;
+        float mScaleStartAngle;
+        int mDivisions;
+        int mSubdivisions;
+        int mRangesId;
+        int mColorsId;
+        // Set only with range arrays
+        Locale mLocale;
+        int mUiMode;
+        int mDensityDpi;
+
+        String mTextValue;
+        String mTextUnit;
+        int mTextValueColor;
+        int mTextUnitColor;
+        int mTextShadowColor;
+        float mTextValueSize;
+        float mTextUnitSize;
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Spec)) return false;
+            final Spec s = (Spec) o;
+            return mRenderMode == s.mRenderMode
+                    && mShowOuterBorder == s.mShowOuterBorder
+                    && mShowNeedle == s.mShowNeedle
+                    && mShowScale == s.mShowScale
+                    && mShowRanges == s.mShowRanges
+                    && mShowText == s.mShowText
+                    && Float.compare(mOuterBorderWidth, s.mOuterBorderWidth) == 0
+                    && Float.compare(mNeedleWidth, s.mNeedleWidth) == 0
+                    && Float.compare(mNeedleHeight, s.mNeedleHeight) == 0
+                    && mNeedleMode == s.mNeedleMode
+                    && mNeedleSprites == s.mNeedleSprites
+                    && mNeedleSpriteBlend == s.mNeedleSpriteBlend
+                    && mNeedleAtlasMaxBytes == s.mNeedleAtlasMaxBytes
+                    && Float.compare(mScalePosition, s.mScalePosition) == 0
+                    && Float.compare(mScaleStartValue, s.mScaleStartValue) == 0
+                    && Float.compare(mScaleEndValue, s.mScaleEndValue) == 0
+                    && Float.compare(mScaleStartAngle, s.mScaleStartAngle) == 0
+                    && mDivisions == s.mDivisions
+                    && mSubdivisions == s.mSubdivisions
+                    && mRangesId == s.mRangesId
+                    && mColorsId == s.mColorsId
+                    && equal(mLocale, s.mLocale)
+                    && mUiMode == s.mUiMode
+                    && mDensityDpi == s.mDensityDpi
+                    && equal(mTextValue, s.mTextValue)
+                    && equal(mTextUnit, s.mTextUnit)
+                    && mTextValueColor == s.mTextValueColor
+                    && mTextUnitColor == s.mTextUnitColor
+                    && mTextShadowColor == s.mTextShadowColor
+                    && Float.compare(mTextValueSize, s.mTextValueSize) == 0
+                    && Float.compare(mTextUnitSize, s.mTextUnitSize) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = mRenderMode;
+            hash = 31 * hash + (mShowOuterBorder ? 1 : 0);
+            hash = 31 * hash + (mShowNeedle ? 1 : 0);
+            hash = 31 * hash + (mShowScale ? 1 : 0);
+            hash = 31 * hash + (mShowRanges ? 1 : 0);
+            hash = 31 * hash + Float.floatToIntBits(mOuterBorderWidth);
+            hash = 31 * hash + Float.floatToIntBits(mNeedleWidth);
+            hash = 31 * hash + Float.floatToIntBits(mNeedleHeight);
+            hash = 31 * hash + mNeedleMode;
+            hash = 31 * hash + Float.floatToIntBits(mScalePosition);
+            hash = 31 * hash + Float.floatToIntBits(mScaleStartValue);
+            hash = 31 * hash + Float.floatToIntBits(mScaleEndValue);
+            hash = 31 * hash + Float.floatToIntBits(mScaleStartAngle);
+            hash = 31 * hash + mDivisions;
+            hash = 31 * hash + mSubdivisions;
+            hash = 31 * hash + mRangesId;
+            hash = 31 * hash + mColorsId;
+            hash = 31 * hash + (null != mLocale ? mLocale.hashCode() : 0);
+            hash = 31 * hash + mUiMode;
+            hash = 31 * hash + mDensityDpi;
+            hash = 31 * hash + (null != mTextValue ? mTextValue.hashCode() : 0);
+            hash = 31 * hash + (null != mTextUnit ? mTextUnit.hashCode() : 0);
+            hash = 31 * hash + mTextShadowColor;
+            return hash;
+        }
+
+        private static boolean equal(final Object a, final Object b) {
+            return (null == a) ? null == b : a.equals(b);
+        }
+    }
+
+    private static final LinkedHashMap<Spec, GaugeStyle> sCache =
+            new LinkedHashMap<Spec, GaugeStyle>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Spec, GaugeStyle> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final Spec mSpec;
+    private final float[] mRangeValues;
+    private final int[] mRangeColors;
+    private final GaugeScale mScale;
+    private final GaugeScene mScene;
+    private final Paint[] mScenePaints;
+    private final StaticLayerSpec mStaticLayer;
+
+    /**
+     * Returns the compiled style for the given attributes, compiling it only on the first
+     * inflation with these values. Safe to call from any thread.
+     */
+    public static GaugeStyle obtain(final Context context, final AttributeSet attrs, final int defStyleAttr,
+                                    final int defStyleRes) {
+        final Spec spec = readSpec(context, attrs, defStyleAttr, defStyleRes);
+        final Resources res = context.getResources();
+        synchronized (sCache) {
+            final GaugeStyle cached = sCache.get(spec);
+            if (null != cached) {
+                return cached;
+            }
+        }
+        final GaugeStyle style = new GaugeStyle(spec, res);
+        synchronized (sCache) {
+            // Another thread may have compiled the same style meanwhile; either is fine
+            sCache.put(spec, style);
+        }
+        return style;
+    }
+
+    /**
+     * Drops all compiled styles. Instances already handed out stay valid.
+     */
+    public static void clearCache() {
+        synchronized (sCache) {
+            sCache.clear();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Spec readSpec(final Context context, final AttributeSet attrs, final int defStyleAttr,
+                                 final int defStyleRes) {
+        final Spec s = new Spec();
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.GaugeView, defStyleAttr, defStyleRes);
+        s.mRenderMode = a.getInt(R.styleable.GaugeView_renderMode, RENDER_MODE);
+        s.mShowOuterBorder = a.getBoolean(R.styleable.GaugeView_showOuterBorder, SHOW_OUTER_BORDER);
+
+        s.mShowNeedle = a.getBoolean(R.styleable.GaugeView_showNeedle, SHOW_NEEDLE);
+        s.mShowScale = a.getBoolean(R.styleable.GaugeView_showScale, SHOW_SCALE);
+        s.mShowRanges = a.getBoolean(R.styleable.GaugeView_showRanges, SHOW_RANGES);
+
+        s.mOuterBorderWidth = s.mShowOuterBorder
+                ? a.getFloat(R.styleable.GaugeView_outerBorderWidth, OUTER_BORDER_WIDTH) : 0.0f;
+
+        s.mNeedleWidth = a.getFloat(R.styleable.GaugeView_needleWidth, NEEDLE_WIDTH);
+        s.mNeedleHeight = a.getFloat(R.styleable.GaugeView_needleHeight, NEEDLE_HEIGHT);
+        s.mNeedleMode = a.getInt(R.styleable.GaugeView_needleMode, NEEDLE_MODE);
+        s.mNeedleSprites = a.getInteger(R.styleable.GaugeView_needleSprites, NEEDLE_SPRITES);
+        s.mNeedleSpriteBlend = a.getBoolean(R.styleable.GaugeView_needleSpriteBlend, NEEDLE_SPRITE_BLEND);
+        s.mNeedleAtlasMaxBytes = a.getInteger(R.styleable.GaugeView_needleAtlasMaxBytes, NEEDLE_ATLAS_MAX_BYTES);
+
+        s.mScalePosition = (s.mShowScale || s.mShowRanges)
+                ? a.getFloat(R.styleable.GaugeView_scalePosition, SCALE_POSITION) : 0.0f;
+        s.mScaleStartValue = a.getFloat(R.styleable.GaugeView_scaleStartValue, SCALE_START_VALUE);
+        s.mScaleEndValue = a.getFloat(R.styleable.GaugeView_scaleEndValue, SCALE_END_VALUE);
+        s.mScaleStartAngle = a.getFloat(R.styleable.GaugeView_scaleStartAngle, SCALE_START_ANGLE);
+
+        s.mDivisions = a.getInteger(R.styleable.GaugeView_divisions, SCALE_DIVISIONS);
+        s.mSubdivisions = a.getInteger(R.styleable.GaugeView_subdivisions, SCALE_SUBDIVISIONS);
+
+        if (s.mShowRanges) {
+            s.mTextShadowColor = a.getColor(R.styleable.GaugeView_textShadowColor, TEXT_SHADOW_COLOR);
+            s.mRangesId = a.getResourceId(R.styleable.GaugeView_rangeValues, 0);
+            s.mColorsId = a.getResourceId(R.styleable.GaugeView_rangeColors, 0);
+            if (s.mRangesId > 0 && s.mColorsId > 0) {
+                final Configuration config = context.getResources().getConfiguration();
+                s.mLocale = config.locale;
+                s.mUiMode = config.uiMode;
+                s.mDensityDpi = context.getResources().getDisplayMetrics().densityDpi;
+            }
+        }
+
+        if (s.mShowText) {
+            final int textValueId = a.getResourceId(R.styleable.GaugeView_textValue, 0);
+            final String textValue = a.getString(R.styleable.GaugeView_textValue);
+            s.mTextValue = (0 < textValueId) ? context.getString(textValueId) : (null != textValue) ? textValue : "";
+
+            final int textUnitId = a.getResourceId(R.styleable.GaugeView_textUnit, 0);
+            final String textUnit = a.getString(R.styleable.GaugeView_textUnit);
+            s.mTextUnit = (0 < textUnitId) ? context.getString(textUnitId) : (null != textUnit) ? textUnit : "";
+            s.mTextValueColor = a.getColor(R.styleable.GaugeView_textValueColor, TEXT_VALUE_COLOR);
+            s.mTextUnitColor = a.getColor(R.styleable.GaugeView_textUnitColor, TEXT_UNIT_COLOR);
+            s.mTextShadowColor = a.getColor(R.styleable.GaugeView_textShadowColor, TEXT_SHADOW_COLOR);
+
+            s.mTextValueSize = a.getFloat(R.styleable.GaugeView_textValueSize, TEXT_VALUE_SIZE);
+            s.mTextUnitSize = a.getFloat(R.styleable.GaugeView_textUnitSize, TEXT_UNIT_SIZE);
+        }
+
+        a.recycle();
+        return s;
+    }
+
+    private GaugeStyle(final Spec spec, final Resources res) {
+        mSpec = spec;
+        if (spec.mShowRanges) {
+            if (spec.mRangesId > 0 && spec.mColorsId > 0) {
+                final String[] ranges = res.getStringArray(spec.mRangesId);
+                final String[] colors = res.getStringArray(spec.mColorsId);
+                if (ranges.length != colors.length) {
+                    throw new IllegalArgumentException(
+                            "The ranges and colors arrays must have the same length.");
+                }
+
+                final int length = ranges.length;
+                mRangeValues = new float[length];
+                mRangeColors = new int[length];
+                for (int i = 0; i < length; i++) {
+                    mRangeValues[i] = Float.parseFloat(ranges[i]);
+                    mRangeColors[i] = Color.parseColor(colors[i]);
+                }
+            } else {
+                mRangeValues = RANGE_VALUES;
+                mRangeColors = RANGE_COLORS;
+            }
+        } else {
+            mRangeValues = null;
+            mRangeColors = null;
+        }
+
+        mScale = new GaugeScale(spec.mScaleStartValue, spec.mScaleEndValue, spec.mScaleStartAngle,
+                spec.mDivisions, spec.mSubdivisions, mRangeValues);
+        mScene = new GaugeScene(mScale, spec.mShowOuterBorder, spec.mOuterBorderWidth, spec.mShowRanges,
+                spec.mScalePosition, spec.mNeedleWidth, spec.mNeedleHeight);
+        mScenePaints = createScenePaints();
+        mStaticLayer = new StaticLayerSpec(spec.mShowOuterBorder, spec.mShowRanges, spec.mOuterBorderWidth,
+                spec.mScalePosition, spec.mScaleStartValue, spec.mScaleEndValue, spec.mScaleStartAngle,
+                spec.mDivisions, spec.mSubdivisions, mRangeValues, mRangeColors, spec.mTextShadowColor);
+    }
+
+    /**
+     * The scene's paints by role; only the roles this style draws are set.
+     */
+    private Paint[] createScenePaints() {
+        final Paint[] paints = new Paint[mScene.getPaintCount()];
+        if (mSpec.mShowOuterBorder) {
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setColor(mScene.getColor(GaugeScene.PAINT_RIM));
+            paint.setStrokeWidth(mScene.getStrokeWidth(GaugeScene.PAINT_RIM));
+            paints[GaugeScene.PAINT_RIM] = paint;
+        }
+        if (mSpec.mShowRanges) {
+            for (int i = 0; i < mRangeValues.length; i++) {
+                final int role = GaugeScene.PAINT_TICKS + i;
+                final Paint paint = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
+                paint.setColor(mScene.getColor(role));
+                paint.setStyle(Paint.Style.STROKE);
+                paint.setStrokeWidth(mScene.getStrokeWidth(role));
+                paint.setTextSize(0.05f);
+                paint.setTypeface(Typeface.SANS_SERIF);
+                paint.setTextAlign(Align.CENTER);
+                // Range paints only ever draw into the background bitmap, which is always rasterized
+                // in software, so the shadow layer is safe in either render mode.
+                paint.setShadowLayer(0.005f, 0.002f, 0.002f, mSpec.mTextShadowColor);
+                paints[role] = paint;
+            }
+        }
+        for (int role = GaugeScene.PAINT_MARKER_PEAK; role <= GaugeScene.PAINT_MARKER_AVERAGE; role++) {
+            final Paint marker = new Paint(Paint.ANTI_ALIAS_FLAG);
+            marker.setColor(mScene.getColor(role));
+            paints[role] = marker;
+        }
+        if (mSpec.mShowNeedle) {
+            final Paint needle = new Paint(Paint.ANTI_ALIAS_FLAG);
+            needle.setColor(mScene.getColor(GaugeScene.PAINT_NEEDLE));
+            paints[GaugeScene.PAINT_NEEDLE] = needle;
+            final Paint screw = new Paint(Paint.ANTI_ALIAS_FLAG);
+            screw.setColor(mScene.getColor(GaugeScene.PAINT_SCREW));
+            paints[GaugeScene.PAINT_SCREW] = screw;
+        }
+        return paints;
+    }
+
+    public int getRenderMode() {
+        return mSpec.mRenderMode;
+    }
+
+    public boolean isShowOuterBorder() {
+        return mSpec.mShowOuterBorder;
+    }
+
+    public boolean isShowNeedle() {
+        return mSpec.mShowNeedle;
+    }
+
+    public boolean isShowScale() {
+        return mSpec.mShowScale;
+    }
+
+    public boolean isShowRanges() {
+        return mSpec.mShowRanges;
+    }
+
+    public boolean isShowText() {
+        return mSpec.mShowText;
+    }
+
+    public float getOuterBorderWidth() {
+        return mSpec.mOuterBorderWidth;
+    }
+
+    public float getNeedleWidth() {
+        return mSpec.mNeedleWidth;
+    }
+
+    public float getNeedleHeight() {
+        return mSpec.mNeedleHeight;
+    }
+
+    public int getNeedleMode() {
+        return mSpec.mNeedleMode;
+    }
+
+    public int getNeedleSprites() {
+        return mSpec.mNeedleSprites;
+    }
+
+    public boolean isNeedleSpriteBlend() {
+        return mSpec.mNeedleSpriteBlend;
+    }
+
+    public int getNeedleAtlasMaxBytes() {
+        return mSpec.mNeedleAtlasMaxBytes;
+    }
+
+    public float getScalePosition() {
+        return mSpec.mScalePosition;
+    }
+
+    public float getScaleStartValue() {
+        return mSpec.mScaleStartValue;
+    }
+
+    public float getScaleEndValue() {
+        return mSpec.mScaleEndValue;
+    }
+
+    /**
+     * @return the range upper bounds, or null without ranges; must not be modified
+     */
+    public float[] getRangeValues() {
+        return mRangeValues;
+    }
+
+    /**
+     * @return the range colors, or null without ranges; must not be modified
+     */
+    public int[] getRangeColors() {
+        return mRangeColors;
+    }
+
+    public String getTextValue() {
+        return mSpec.mTextValue;
+    }
+
+    public String getTextUnit() {
+        return mSpec.mTextUnit;
+    }
+
+    public int getTextValueColor() {
+        return mSpec.mTextValueColor;
+    }
+
+    public int getTextUnitColor() {
+        return mSpec.mTextUnitColor;
+    }
+
+    public int getTextShadowColor() {
+        return mSpec.mTextShadowColor;
+    }
+
+    public float getTextValueSize() {
+        return mSpec.mTextValueSize;
+    }
+
+    public float getTextUnitSize() {
+        return mSpec.mTextUnitSize;
+    }
+
+    public GaugeScale getScale() {
+        return mScale;
+    }
+
+    public GaugeScene getScene() {
+        return mScene;
+    }
+
+    /**
+     * The scene's paints by role, shared by every renderer of this style.
+     */
+    public Paint[] getScenePaints() {
+        return mScenePaints;
+    }
+
+    /**
+     * Everything that ends up in the static layer, which identifies the layer in the caches.
+     */
+    public StaticLayerSpec getStaticLayer() {
+        return mStaticLayer;
+    }
+
+    /**
+     * Hash of everything that ends up in the static layer.
+     */
+    public int getStyleHash() {
+        return mStaticLayer.hashCode();
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.alex.testapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link GaugeView} look-alike that draws on its own render thread, so the needle keeps
+ * moving while the UI thread is busy with layout, scrolling or activity work.
+ * <p>
+ * It takes the same {@code gauge:} attributes and draws through the same {@link GaugeRenderer}.
+ * Values may be set from any thread: they travel through a lock-free {@link MpscSampleQueue}
+ * and are picked up by the render thread's own {@link FrameDriver} loop.
+ */
+public class GaugeSurfaceView extends SurfaceView implements SurfaceHolder.Callback, SampleSink {
+
+    public static final int SAMPLE_CAPACITY = 256;
+
+    private final GaugeRenderer mRenderer;
+    private final SampleQueue mSampleQueue = new MpscSampleQueue(SAMPLE_CAPACITY);
+    private final SampleReducer mSampleReducer = new SampleReducer(SampleReducer.LATEST);
+    // True while the render thread will not look at the queue without being woken up
+    private final AtomicBoolean mSamplesIdle = new AtomicBoolean(true);
+
+    private volatile int mSurfaceColor = Color.WHITE;
+    private volatile int mMaxFrameRate;
+
+    private HandlerThread mRenderThread;
+    private volatile Handler mRenderHandler;
+
+    // Render thread state
+    private final NeedlePhysics mPhysics = new NeedlePhysics(1);
+    private final FrameGovernor mGovernor = new FrameGovernor();
+    private boolean mNeedleInitialized;
+    private boolean mSurfaceReady;
+    private boolean mRendering;
+    private boolean mDirty;
+    private float mDrawnValue;
+    private long mLastFrameNanos = -1;
+    private int mWidth;
+    private int mHeight;
+    private Bitmap mBackground;
+    private BackgroundCache.Key mBackgroundKey;
+
+    public GaugeSurfaceView(final Context context, final AttributeSet attrs, final int defStyle) {
+        super(context, attrs, defStyle);
+        mRenderer = new GaugeRenderer(context, attrs, defStyle, 0);
+        getHolder().addCallback(this);
+    }
+
+    public GaugeSurfaceView(final Context context, final AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public GaugeSurfaceView(final Context context) {
+        this(context, null, 0);
+    }
+
+    public GaugeRenderer getRenderer() {
+        return mRenderer;
+    }
+
+    /**
+     * Color the surface is cleared with before the gauge is drawn, since a surface has no
+     * view background behind it.
+     */
+    public void setSurfaceColor(final int color) {
+        mSurfaceColor = color;
+        requestRender();
+    }
+
+    /**
+     * Caps the redraw rate of the needle animation, or lifts the cap with 0. Takes effect
+     * when the needle next starts moving.
+     */
+    public void setMaxFrameRate(final int fps) {
+        mMaxFrameRate = fps;
+    }
+
+    /**
+     * Sets the value the needle moves to. Safe to call from any thread; it never blocks.
+     */
+    public void setTargetValue(final float value) {
+        offerSample(System.nanoTime(), value);
+    }
+
+    /**
+     * Lets the gauge terminate a {@link SpeedStages} pipeline; same as
+     * {@link #offerSample(long, float)}.
+     */
+    @Override
+    public void onSample(final long timestampNanos, final float value) {
+        offerSample(timestampNanos, value);
+    }
+
+    /**
+     * @return false if the queue was full and the sample was dropped
+     */
+    public boolean offerSample(final long timestampNanos, final float value) {
+        final boolean queued = mSampleQueue.offer(timestampNanos, value);
+        if (queued && mSamplesIdle.compareAndSet(true, false)) {
+            wakeRenderThread();
+        }
+        return queued;
+    }
+
+    /**
+     * Call before values start arriving; the reducer is owned by the render thread.
+     *
+     * @param reduction one of the {@link SampleReducer} modes
+     */
+    public void setSampleReduction(final int reduction) {
+        mSampleReducer.setMode(reduction);
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        setMeasuredDimension(chooseDimension(widthMeasureSpec), chooseDimension(heightMeasureSpec));
+    }
+
+    private int chooseDimension(final int measureSpec) {
+        switch (MeasureSpec.getMode(measureSpec)) {
+            case MeasureSpec.AT_MOST:
+            case MeasureSpec.EXACTLY:
+                return MeasureSpec.getSize(measureSpec);
+            case MeasureSpec.UNSPECIFIED:
+            default:
+                return GaugeView.SIZE;
+        }
+    }
+
+    // *--------------------------------------------------------------------- *//
+    // Surface lifecycle, UI thread
+    // *--------------------------------------------------------------------- *//
+
+    @Override
+    public void surfaceCreated(final SurfaceHolder holder) {
+        mRenderThread = new HandlerThread("GaugeRender", Process.THREAD_PRIORITY_DISPLAY);
+        mRenderThread.start();
+        mRenderHandler = new Handler(mRenderThread.getLooper());
+    }
+
+    @Override
+    public void surfaceChanged(final SurfaceHolder holder, final int format, final int width, final int height) {
+        final Handler handler = mRenderHandler;
+        if (null == handler) {
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                resize(width, height);
+            }
+        });
+    }
+
+    @Override
+    public void surfaceDestroyed(final SurfaceHolder holder) {
+        final Handler handler = mRenderHandler;
+        if (null == handler) {
+            return;
+        }
+        mRenderHandler = null;
+        // The surface is gone once this returns, so wait for the render thread to let go of it
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                release();
+                mRenderThread.quit();
+            }
+        });
+        boolean interrupted = false;
+        while (mRenderThread.isAlive()) {
+            try {
+                mRenderThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        mRenderThread = null;
+    }
+
+    private void wakeRenderThread() {
+        final Handler handler = mRenderHandler;
+        if (null != handler) {
+            handler.post(mStartRendering);
+        } else {
+            // Picked up by the first frame once a surface exists
+            mSamplesIdle.set(false);
+        }
+    }
+
+    private void requestRender() {
+        final Handler handler = mRenderHandler;
+        if (null != handler) {
+            handler.post(mInvalidate);
+        }
+    }
+
+    // *--------------------------------------------------------------------- *//
+    // Render thread
+    // *--------------------------------------------------------------------- *//
+
+    private final Runnable mStartRendering = new Runnable() {
+        @Override
+        public void run() {
+            startRendering();
+        }
+    };
+
+    private final Runnable mInvalidate = new Runnable() {
+        @Override
+        public void run() {
+            mDirty = true;
+            startRendering();
+        }
+    };
+
+    private final FrameDriver.Callback mFrameCallback = new FrameDriver.Callback() {
+        @Override
+        public boolean doFrame(final long frameTimeNanos) {
+            return renderFrame(frameTimeNanos);
+        }
+    };
+
+    private void resize(final int width, final int height) {
+        mWidth = width;
+        mHeight = height;
+        mSurfaceReady = width > 0 && height > 0;
+        releaseBackground();
+        if (mSurfaceReady) {
+            mBackgroundKey = new BackgroundCache.Key(width, height, mRenderer.getStaticLayer());
+            mBackground = BackgroundCache.getInstance().acquire(mBackgroundKey, mRenderer.asBackgroundRenderer());
+            mRenderer.prepare(Math.min(width, height));
+        }
+        mGovernor.setRadius(mRenderer.isShowNeedle() ? mRenderer.getNeedleLength() * Math.min(width, height) : 0);
+        mDirty = true;
+        startRendering();
+    }
+
+    private void release() {
+        if (mRendering) {
+            mRendering = false;
+            FrameDriver.getInstance().remove(mFrameCallback);
+        }
+        mSurfaceReady = false;
+        releaseBackground();
+        // Values set while there is no surface wake up the next render thread
+        mSamplesIdle.set(false);
+    }
+
+    private void releaseBackground() {
+        if (null != mBackgroundKey) {
+            BackgroundCache.getInstance().release(mBackgroundKey);
+            mBackground = null;
+            mBackgroundKey = null;
+        }
+    }
+
+    private void startRendering() {
+        if (!mRendering && mSurfaceReady) {
+            mRendering = true;
+            // The first frame only establishes the time base
+            mLastFrameNanos = -1;
+            mGovernor.reset();
+            mGovernor.setMaxFrameRate(mMaxFrameRate);
+            FrameDriver.getInstance().add(mFrameCallback);
+        }
+    }
+
+    /**
+     * @return true while the needle still needs frames
+     */
+    private boolean renderFrame(final long frameTimeNanos) {
+        mSampleReducer.reset();
+        if (mSampleQueue.drainTo(mSampleReducer) > 0) {
+            mPhysics.setTarget(0, mRenderer.clampValue(mSampleReducer.getValue()));
+            mNeedleInitialized = true;
+        }
+        if (!mSurfaceReady) {
+            mRendering = false;
+            return false;
+        }
+        if (-1 != mLastFrameNanos) {
+            mPhysics.advanceNanos(frameTimeNanos - mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        final float angle = mRenderer.getAngleForValue(mPhysics.getValue(0));
+        // A needle that just stopped is drawn where it stopped even under a frame rate cap
+        final int decision = mPhysics.isMoving(0)
+                ? mGovernor.onFrame(frameTimeNanos, angle, mRenderer.getAngleForValue(mPhysics.getTarget(0)))
+                : mGovernor.onRest(frameTimeNanos, angle);
+        if (FrameGovernor.SETTLED == decision) {
+            mPhysics.settle(0);
+        }
+        final float value = mPhysics.getValue(0);
+        if (mDirty || (FrameGovernor.SKIP != decision && value != mDrawnValue)) {
+            draw(value);
+        }
+
+        mRendering = mPhysics.isAnyMoving();
+        if (!mRendering) {
+            mSamplesIdle.set(true);
+            // A producer may have queued a sample while the flag was still cleared
+            if (!mSampleQueue.isEmpty() && mSamplesIdle.compareAndSet(true, false)) {
+                mRendering = true;
+            }
+        }
+        return mRendering;
+    }
+
+    private void draw(final float value) {
+        final Canvas canvas = getHolder().lockCanvas();
+        if (null == canvas) {
+            return;
+        }
+        try {
+            canvas.drawColor(mSurfaceColor);
+            if (null != mBackground) {
+                canvas.drawBitmap(mBackground, 0, 0, mRenderer.getBitmapPaint());
+            }
+            final float scale = GaugeRenderer.fitUnitSquare(canvas, mWidth, mHeight);
+            if (mRenderer.isShowNeedle() && mNeedleInitialized) {
+                mRenderer.drawNeedle(canvas, value);
+            }
+            if (mRenderer.isShowText()) {
+                mRenderer.drawText(canvas, value, scale);
+            }
+        } finally {
+            getHolder().unlockCanvasAndPost(canvas);
+        }
+        mDrawnValue = value;
+        mDirty = false;
+    }
+}
@@ -1,30 +1,33 @@
 package com.example.alex.testapp;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
+import android.annotation.TargetApi;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Paint.Align;
-import android.graphics.Path;
+import android.graphics.Matrix;
+import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Typeface;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcelable;
-import android.text.TextUtils;
+import android.os.PowerManager;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 
-public class GaugeView extends View {
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GaugeView extends View implements SampleSink {
 
     protected final String SUPER_STATE              = "superState";
     protected final String NEEDLE_INITIALIZED       = "needleInitialized";
     protected final String NEEDLE_VELOCITY          = "needleVelocity";
     protected final String NEEDLE_ACCELERATION      = "needleAcceleration";
-    protected final String NEEDLE_LAST_MOVED        = "needleLastMoved";
     protected final String NEEDLE_CURRENT_VALUE     = "currentValue";
     protected final String NEEDLE_TARGET_VALUE      = "targetValue";
 
@@ -43,6 +46,7 @@ public class GaugeView extends View {
 
     public static final float NEEDLE_WIDTH = 0.025f;
     public static final float NEEDLE_HEIGHT = 0.32f;
+    public static final float NEEDLE_SCREW_RADIUS = 0.025f;
     public static final float SCALE_POSITION = 0.015f;
     public static final float SCALE_START_VALUE = 0.0f;
     public static final float SCALE_END_VALUE = 100.0f;
@@ -51,6 +55,8 @@ public class GaugeView extends View {
     public static final int SCALE_SUBDIVISIONS = 5;
 
     public static final float[] RANGE_VALUES = {16.0f, 25.0f, 40.0f, 100.0f};
+    public static final int DIVISION_COLOR = GaugeScene.DIVISION_COLOR;
+
     public static final int[] RANGE_COLORS = {Color.rgb(0, 0, 0), Color.rgb(0, 0, 0), Color.rgb(0, 0, 0),
             Color.rgb(0, 0, 0)};
 
@@ -60,85 +66,118 @@ public class GaugeView extends View {
     public static final float TEXT_VALUE_SIZE = 0.12f;
     public static final float TEXT_UNIT_SIZE = 0.12f;
     public static final float TEXT_OFFSET_Y = 20f;
-
-
-    // *--------------------------------------------------------------------- *//
-    // Customizable properties
-    // *--------------------------------------------------------------------- *//
-
-    private boolean mShowOuterBorder;
-
-    private boolean mShowScale;
-    private boolean mShowRanges;
-    private boolean mShowNeedle;
-    private boolean mShowText = true;
-
-    private float mOuterBorderWidth;
-    private float mNeedleWidth;
-    private float mNeedleHeight;
-
-
-    private float mScalePosition;
-    private float mScaleStartValue;
-    private float mScaleEndValue;
-    private float mScaleStartAngle;
-    private float[] mRangeValues;
-
-    private int[] mRangeColors;
-    private int mDivisions;
-    private int mSubdivisions;
-
-    private RectF mOuterShadowRect;
-    private RectF mOuterBorderRect;
-    private RectF mOuterRimRect;
-
-    private RectF mFaceRect;
-    private RectF mScaleRect;
+    public static final float TEXT_MAGNIFIER = 100f;
+    public static final float TEXT_SHADOW_OFFSET = 0.002f;
+
+    public static final int RENDER_MODE_SOFTWARE = 0;
+    public static final int RENDER_MODE_HARDWARE = 1;
+    public static final int RENDER_MODE = RENDER_MODE_SOFTWARE;
+
+    public static final int NEEDLE_MODE_VECTOR = 0;
+    public static final int NEEDLE_MODE_SPRITE = 1;
+    public static final int NEEDLE_MODE = NEEDLE_MODE_VECTOR;
+    public static final int NEEDLE_SPRITES = 120;
+    public static final boolean NEEDLE_SPRITE_BLEND = false;
+    public static final int NEEDLE_ATLAS_MAX_BYTES = 1024 * 1024;
+
+    public static final int SAMPLE_CAPACITY = 256;
+
+    public static final int FILTER_NONE = 0;
+    public static final int FILTER_EMA = 1;
+    public static final int FILTER_MEDIAN = 2;
+    public static final int FILTER_KALMAN = 3;
+    public static final int FILTER = FILTER_NONE;
+    public static final float FILTER_TIME_CONSTANT = 0.3f;
+    public static final int FILTER_WINDOW = 5;
+    public static final float FILTER_PROCESS_NOISE = 50.0f;
+    public static final float FILTER_MEASUREMENT_NOISE = 4.0f;
+    public static final float FILTER_DEADBAND = 0.0f;
+
+    public static final boolean SHOW_MARKERS = false;
+    public static final float STATS_WINDOW = 10.0f;
+    public static final int STATS_CAPACITY = 2048;
+
+    public static final boolean SHOW_HISTORY = false;
+    public static final float HISTORY_WINDOW = 60.0f;
+    public static final int HISTORY_COLOR = 0x801B8ACA;
+    // The band inside the face the history is drawn into, in the unit square
+    public static final float HISTORY_LEFT = 0.3f;
+    public static final float HISTORY_TOP = 0.3f;
+    public static final float HISTORY_RIGHT = 0.7f;
+    public static final float HISTORY_BOTTOM = 0.4f;
+
+    public static final int MAX_FRAME_RATE = 0;
+    public static final int POWER_SAVE_FRAME_RATE = 30;
+
+    public static final boolean ASYNC_INIT = true;
+
+
+    private final GaugeRenderer mRenderer;
 
     private Bitmap mBackground;
-    private Paint mBackgroundPaint;
-
-    private Paint mOuterBorderPaint;
-
-    private Paint mFacePaint;
-
-    private Paint[] mRangePaints;
-
-    private Paint mNeedleLeftPaint;
-    private Paint mNeedleScrewPaint;
-
-    private Paint mTextValuePaint;
-
-    private String mTextValue;
-    private String mTextUnit;
-    private int mTextValueColor;
-    private int mTextUnitColor;
-    private int mTextShadowColor;
-    private float mTextValueSize;
-    private float mTextUnitSize;
-
-    private Path mNeedleRightPath;
-    private Path mNeedleLeftPath;
-
-    // *--------------------------------------------------------------------- *//
-
-    private float mScaleRotation;
-    private float mDivisionValue;
-    private float mSubdivisionValue;
-    private float mSubdivisionAngle;
-
-    private float mTargetValue;
-    private float mCurrentValue;
-
-    private float mNeedleVelocity;
-    private float mNeedleAcceleration;
-    private long mNeedleLastMoved = -1;
-    private boolean mNeedleInitialized;
+    private BackgroundCache.Key mBackgroundKey;
+    private boolean mAsyncInit;
+    private final GaugeStartup mStartup;
+
+    // Needle 0 is the main one, the others are added with addNeedle
+    private final ArrayList<GaugeNeedle> mNeedles = new ArrayList<>();
+    private float[] mTargetValues = new float[1];
+    private NeedlePhysics mPhysics = new NeedlePhysics(1);
+    private boolean[] mNeedlesInitialized = new boolean[1];
+
+    private GaugeMetrics mMetrics;
+    private boolean mTrackAllocations;
+    // Whether this gauge holds a reference on AllocationCounting
+    private boolean mCountingAllocations;
+
+    private boolean mAnimating;
+    private long mLastFrameNanos = -1;
+    private FrameGovernor[] mGovernors = {new FrameGovernor()};
+
+    private RollingStats mStats;
+    private boolean mShowMarkers;
+    private float mStatsWindow;
+    // Session min, max, average and window peak as last drawn
+    private final float[] mDrawnMarkers = new float[4];
+    private final float[] mMarkerValues = new float[4];
+
+    private HistoryStrip mHistory;
+    private final RectF mHistoryBounds = new RectF(HISTORY_LEFT, HISTORY_TOP, HISTORY_RIGHT, HISTORY_BOTTOM);
+    private final Rect mHistoryRect = new Rect();
+    // When mScrollHistory is due, or -1
+    private long mHistoryScrollNanos = -1;
+    private int mMaxFrameRate;
+    private int mPowerSaveFrameRate;
+
+    private volatile SampleQueue mSampleQueue = new SpscSampleQueue(SAMPLE_CAPACITY);
+    private final SampleReducer mSampleReducer = new SampleReducer(SampleReducer.LATEST);
+    private SignalFilter mFilter;
+    private float mFilterDeadband;
+    // True while neither the frame loop nor a posted drain will look at the queue
+    private final AtomicBoolean mSamplesIdle = new AtomicBoolean(true);
+    // Not View.post: before API 24 a detached view queues posts from other threads where
+    // they never run, and the queue would never be drained again
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private boolean[] mNeedlesDrawn = new boolean[1];
+    private float[] mDrawnValues = new float[1];
+    private final Matrix mDirtyMatrix = new Matrix();
+    private final float[] mDirtyPoints = new float[6];
+    private final float[] mSpriteAngles = new float[2];
+    private final RectF mDirtyBounds = new RectF();
+    private final Rect mDirtyRect = new Rect();
+    private final Rect mClipRect = new Rect();
+    private long mLastFramePixels;
+    private long mTotalPixels;
+    private long mFrameCount;
 
     public GaugeView(final Context context, final AttributeSet attrs, final int defStyle) {
         super(context, attrs, defStyle);
-        readAttrs(context, attrs, defStyle);
+        mStartup = new GaugeStartup(System.nanoTime());
+        mRenderer = new GaugeRenderer(context, attrs, defStyle, 0);
+        readViewAttrs(context, attrs, defStyle);
         init();
+        mStartup.mark(GaugeStartup.CONSTRUCTED, System.nanoTime());
     }
 
     public GaugeView(final Context context, final AttributeSet attrs) {
@@ -149,501 +188,1053 @@ public class GaugeView extends View {
         this(context, null, 0);
     }
 
-    private void readAttrs(final Context context, final AttributeSet attrs, final int defStyle) {
+    /**
+     * Reads the attributes that drive this view's animation rather than its look.
+     */
+    private void readViewAttrs(final Context context, final AttributeSet attrs, final int defStyle) {
         final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.GaugeView, defStyle, 0);
-        mShowOuterBorder = a.getBoolean(R.styleable.GaugeView_showOuterBorder, SHOW_OUTER_BORDER);
+        switch (a.getInt(R.styleable.GaugeView_filter, FILTER)) {
+            case FILTER_EMA:
+                mFilter = new EmaFilter(a.getFloat(R.styleable.GaugeView_filterTimeConstant, FILTER_TIME_CONSTANT));
+                break;
+            case FILTER_MEDIAN:
+                mFilter = new MedianFilter(a.getInteger(R.styleable.GaugeView_filterWindow, FILTER_WINDOW));
+                break;
+            case FILTER_KALMAN:
+                mFilter = new KalmanFilter(a.getFloat(R.styleable.GaugeView_filterProcessNoise, FILTER_PROCESS_NOISE),
+                        a.getFloat(R.styleable.GaugeView_filterMeasurementNoise, FILTER_MEASUREMENT_NOISE));
+                break;
+            case FILTER_NONE:
+            default:
+                mFilter = null;
+                break;
+        }
+        mFilterDeadband = a.getFloat(R.styleable.GaugeView_filterDeadband, FILTER_DEADBAND);
+        mPhysics.setDampingRatio(a.getFloat(R.styleable.GaugeView_needleDampingRatio, NeedlePhysics.DAMPING_RATIO));
+        mPhysics.setFrequency(a.getFloat(R.styleable.GaugeView_needleFrequency, NeedlePhysics.FREQUENCY));
+        mPhysics.setMaxRate(a.getFloat(R.styleable.GaugeView_needleMaxRate, NeedlePhysics.MAX_RATE));
+        mPhysics.setModel(a.getInt(R.styleable.GaugeView_needleModel, NeedlePhysics.MODEL_SPRING));
+        mShowMarkers = a.getBoolean(R.styleable.GaugeView_showMarkers, SHOW_MARKERS);
+        mStatsWindow = a.getFloat(R.styleable.GaugeView_statsWindow, STATS_WINDOW);
+        setStatisticsEnabled(mShowMarkers);
+        if (a.getBoolean(R.styleable.GaugeView_showHistory, SHOW_HISTORY)) {
+            final float window = a.getFloat(R.styleable.GaugeView_historyWindow, HISTORY_WINDOW);
+            mHistory = new HistoryStrip((long) (window * 1e9), mRenderer.getScale().getStartValue(),
+                    mRenderer.getScale().getEndValue(), a.getColor(R.styleable.GaugeView_historyColor, HISTORY_COLOR));
+        }
+        mMaxFrameRate = a.getInteger(R.styleable.GaugeView_maxFrameRate, MAX_FRAME_RATE);
+        mPowerSaveFrameRate = a.getInteger(R.styleable.GaugeView_powerSaveFrameRate, POWER_SAVE_FRAME_RATE);
+        mAsyncInit = a.getBoolean(R.styleable.GaugeView_asyncInit, ASYNC_INIT);
+        a.recycle();
+    }
 
-        mShowNeedle = a.getBoolean(R.styleable.GaugeView_showNeedle, SHOW_NEEDLE);
-        mShowScale = a.getBoolean(R.styleable.GaugeView_showScale, SHOW_SCALE);
-        mShowRanges = a.getBoolean(R.styleable.GaugeView_showRanges, SHOW_RANGES);
+    private void init() {
+        // The hardware path draws through the window's display list; a hardware layer would be
+        // re-rendered on every needle frame anyway.
+        setLayerType(mRenderer.isSoftwareRendered() ? View.LAYER_TYPE_SOFTWARE : View.LAYER_TYPE_NONE, null);
+    }
 
-        mOuterBorderWidth = mShowOuterBorder ? a.getFloat(R.styleable.GaugeView_outerBorderWidth, OUTER_BORDER_WIDTH) : 0.0f;
+    public GaugeRenderer getRenderer() {
+        return mRenderer;
+    }
 
+    @Override
+    protected void onRestoreInstanceState(final Parcelable state) {
+        final Bundle bundle = (Bundle) state;
+        final Parcelable superState = bundle.getParcelable(SUPER_STATE);
+        super.onRestoreInstanceState(superState);
 
-        mNeedleWidth = a.getFloat(R.styleable.GaugeView_needleWidth, NEEDLE_WIDTH);
-        mNeedleHeight = a.getFloat(R.styleable.GaugeView_needleHeight, NEEDLE_HEIGHT);
+        final boolean[] initialized = bundle.getBooleanArray(NEEDLE_INITIALIZED);
+        final float[] targets = bundle.getFloatArray(NEEDLE_TARGET_VALUE);
+        final float[] values = bundle.getFloatArray(NEEDLE_CURRENT_VALUE);
+        final float[] velocities = bundle.getFloatArray(NEEDLE_VELOCITY);
+        final float[] accelerations = bundle.getFloatArray(NEEDLE_ACCELERATION);
+        // Needles are added in code, so only those added again by now get their state back
+        final int count = Math.min(getNeedleCount(), initialized.length);
+        for (int i = 0; i < count; i++) {
+            mNeedlesInitialized[i] = initialized[i];
+            mTargetValues[i] = targets[i];
+            mPhysics.setState(i, values[i], velocities[i], accelerations[i], targets[i]);
+        }
+        startAnimation();
+    }
 
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final Parcelable superState = super.onSaveInstanceState();
 
-        mScalePosition = (mShowScale || mShowRanges) ? a.getFloat(R.styleable.GaugeView_scalePosition, SCALE_POSITION) : 0.0f;
-        mScaleStartValue = a.getFloat(R.styleable.GaugeView_scaleStartValue, SCALE_START_VALUE);
-        mScaleEndValue = a.getFloat(R.styleable.GaugeView_scaleEndValue, SCALE_END_VALUE);
-        mScaleStartAngle = a.getFloat(R.styleable.GaugeView_scaleStartAngle, SCALE_START_ANGLE);
+        final Bundle state = new Bundle();
+        state.putParcelable(SUPER_STATE, superState);
+        final int count = getNeedleCount();
+        final float[] values = new float[count];
+        final float[] velocities = new float[count];
+        final float[] accelerations = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = mPhysics.getValue(i);
+            velocities[i] = mPhysics.getVelocity(i);
+            accelerations[i] = mPhysics.getAcceleration(i);
+        }
+        state.putBooleanArray(NEEDLE_INITIALIZED, mNeedlesInitialized.clone());
+        state.putFloatArray(NEEDLE_VELOCITY, velocities);
+        state.putFloatArray(NEEDLE_ACCELERATION, accelerations);
+        state.putFloatArray(NEEDLE_CURRENT_VALUE, values);
+        state.putFloatArray(NEEDLE_TARGET_VALUE, mTargetValues.clone());
+        return state;
+    }
 
-        mDivisions = a.getInteger(R.styleable.GaugeView_divisions, SCALE_DIVISIONS);
-        mSubdivisions = a.getInteger(R.styleable.GaugeView_subdivisions, SCALE_SUBDIVISIONS);
 
-        if (mShowRanges) {
-            mTextShadowColor = a.getColor(R.styleable.GaugeView_textShadowColor, TEXT_SHADOW_COLOR);
-            final int rangesId = a.getResourceId(R.styleable.GaugeView_rangeValues, 0);
-            final int colorsId = a.getResourceId(R.styleable.GaugeView_rangeColors, 0);
-            readRanges(context.getResources(), rangesId, colorsId);
-        }
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        // Loggable.log.debug(String.format("widthMeasureSpec=%s, heightMeasureSpec=%s",
+        // View.MeasureSpec.toString(widthMeasureSpec),
+        // View.MeasureSpec.toString(heightMeasureSpec)));
 
-        if (mShowText) {
-            final int textValueId = a.getResourceId(R.styleable.GaugeView_textValue, 0);
-            final String textValue = a.getString(R.styleable.GaugeView_textValue);
-            mTextValue = (0 < textValueId) ? context.getString(textValueId) : (null != textValue) ? textValue : "";
+        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        final int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
 
-            final int textUnitId = a.getResourceId(R.styleable.GaugeView_textUnit, 0);
-            final String textUnit = a.getString(R.styleable.GaugeView_textUnit);
-            mTextUnit = (0 < textUnitId) ? context.getString(textUnitId) : (null != textUnit) ? textUnit : "";
-            mTextValueColor = a.getColor(R.styleable.GaugeView_textValueColor, TEXT_VALUE_COLOR);
-            mTextUnitColor = a.getColor(R.styleable.GaugeView_textUnitColor, TEXT_UNIT_COLOR);
-            mTextShadowColor = a.getColor(R.styleable.GaugeView_textShadowColor, TEXT_SHADOW_COLOR);
+        final int chosenWidth = chooseDimension(widthMode, widthSize);
+        final int chosenHeight = chooseDimension(heightMode, heightSize);
+        setMeasuredDimension(chosenWidth, chosenHeight);
+    }
 
-            mTextValueSize = a.getFloat(R.styleable.GaugeView_textValueSize, TEXT_VALUE_SIZE);
-            mTextUnitSize = a.getFloat(R.styleable.GaugeView_textUnitSize, TEXT_UNIT_SIZE);
+    private int chooseDimension(final int mode, final int size) {
+        switch (mode) {
+            case View.MeasureSpec.AT_MOST:
+            case View.MeasureSpec.EXACTLY:
+                return size;
+            case View.MeasureSpec.UNSPECIFIED:
+            default:
+                return getDefaultDimension();
         }
-
-        a.recycle();
     }
 
-    private void readRanges(final Resources res, final int rangesId, final int colorsId) {
-        if (rangesId > 0 && colorsId > 0) {
-            final String[] ranges = res.getStringArray(R.array.ranges);
-            final String[] colors = res.getStringArray(R.array.rangeColors);
-            if (ranges.length != colors.length) {
-                throw new IllegalArgumentException(
-                        "The ranges and colors arrays must have the same length.");
-            }
+    private int getDefaultDimension() {
+        return SIZE;
+    }
 
-            final int length = ranges.length;
-            mRangeValues = new float[length];
-            mRangeColors = new int[length];
-            for (int i = 0; i < length; i++) {
-                mRangeValues[i] = Float.parseFloat(ranges[i]);
-                mRangeColors[i] = Color.parseColor(colors[i]);
-            }
+    @Override
+    protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
+        mStartup.mark(GaugeStartup.LAID_OUT, System.nanoTime());
+        drawGauge();
+        if (mAsyncInit) {
+            mRenderer.prepareAsync(Math.min(w, h), mInvalidate);
         } else {
-            mRangeValues = RANGE_VALUES;
-            mRangeColors = RANGE_COLORS;
+            mRenderer.prepare(Math.min(w, h));
+        }
+        updateGovernorRadii();
+        if (null != mHistory) {
+            mapUnitRect(mHistoryBounds, mHistoryRect, 0);
+            mHistory.setSize(mHistoryRect.width(), mHistoryRect.height());
         }
     }
 
-    private void init() {
-        setLayerType(View.LAYER_TYPE_SOFTWARE, null);
-        initDrawingRects();
-        initDrawingTools();
-        if (mShowRanges) {
-            initScale();
+    private void drawGauge() {
+        final BackgroundCache cache = BackgroundCache.getInstance();
+        releaseBackground();
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        final long start = (null != mMetrics) ? mMetrics.begin() : 0;
+        // Identically styled gauges of the same size share one background
+        final BackgroundCache.Key key = new BackgroundCache.Key(getWidth(), getHeight(), mRenderer.getStaticLayer());
+        mBackgroundKey = key;
+        final int size = Math.min(getWidth(), getHeight());
+        final boolean packaged = PrerenderedLayers.has(getContext(), key.getStaticLayer(), size);
+        if (!cache.contains(key) && (mAsyncInit || packaged)) {
+            // Render or decode off the UI thread; the needle is drawn alone meanwhile
+            cache.prerender(key, packaged ? PrerenderedLayers.renderer(getContext(), key.getStaticLayer(), size,
+                    mBackgroundRenderer) : mBackgroundRenderer, new Runnable() {
+                @Override
+                public void run() {
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (key.equals(mBackgroundKey) && null == mBackground) {
+                                mBackground = BackgroundCache.getInstance().acquire(key, mBackgroundRenderer);
+                                invalidate();
+                            }
+                        }
+                    });
+                }
+            });
+        } else {
+            mBackground = cache.acquire(key, mBackgroundRenderer);
+        }
+        if (null != mMetrics) {
+            mMetrics.end(GaugeMetrics.PHASE_DRAW_GAUGE, start);
         }
     }
 
-    public void initDrawingRects() {
-        // The drawing area is a rectangle of width 1 and height 1,
-        // where (0,0) is the top left corner of the canvas.
-        // Note that on Canvas X axis points to right, while the Y axis points downwards.
-        mOuterShadowRect = new RectF(LEFT, TOP, RIGHT, BOTTOM);
+    /**
+     * Renders the background for the given size on a background thread, so that a gauge
+     * laid out at that size later on picks it up from the shared cache.
+     */
+    public void prerenderBackground(final int width, final int height) {
+        BackgroundCache.getInstance().prerender(new BackgroundCache.Key(width, height, mRenderer.getStaticLayer()),
+                mBackgroundRenderer);
+    }
 
-        mOuterBorderRect = new RectF(mOuterShadowRect.left + OUTER_BORDER_WIDTH/2 , mOuterShadowRect.top + OUTER_BORDER_WIDTH/2,
-                mOuterShadowRect.right - OUTER_BORDER_WIDTH/2 , mOuterShadowRect.bottom - OUTER_BORDER_WIDTH/2);
+    private final BackgroundCache.Renderer mBackgroundRenderer = new BackgroundCache.Renderer() {
+        @Override
+        public void render(final Canvas canvas, final int width, final int height) {
+            mRenderer.drawStaticLayer(canvas, width, height, getMetricsForThread());
+        }
+    };
 
-        mOuterRimRect = new RectF(mOuterBorderRect.left + mOuterBorderWidth, mOuterBorderRect.top + mOuterBorderWidth,
-                mOuterBorderRect.right - mOuterBorderWidth, mOuterBorderRect.bottom - mOuterBorderWidth);
+    private final Runnable mInvalidate = new Runnable() {
+        @Override
+        public void run() {
+            invalidate();
+        }
+    };
 
-        mFaceRect = new RectF(mOuterRimRect.left , mOuterRimRect.top ,
-                mOuterRimRect.right , mOuterRimRect.bottom );
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (null == mBackgroundKey) {
+            drawGauge();
+        }
+        startAnimation();
+        updateAllocationCounting(true);
+        if (null != mStats) {
+            expireStatistics();
+            invalidateMarkers();
+        }
+    }
 
-        mScaleRect = new RectF(mFaceRect.left + mScalePosition, mFaceRect.top + mScalePosition, mFaceRect.right - mScalePosition,
-                mFaceRect.bottom - mScalePosition);
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        stopAnimation();
+        releaseBackground();
+        removeCallbacks(mExpireStatistics);
+        removeCallbacks(mScrollHistory);
+        mHistoryScrollNanos = -1;
+        updateAllocationCounting(false);
     }
 
-    private void initDrawingTools() {
-        mBackgroundPaint = new Paint();
-        mBackgroundPaint.setFilterBitmap(true);
+    private void releaseBackground() {
+        if (null != mBackground) {
+            // Only a background that was acquired holds a reference
+            BackgroundCache.getInstance().release(mBackgroundKey);
+        }
+        mBackground = null;
+        mBackgroundKey = null;
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        final GaugeMetrics metrics = mMetrics;
+        final long start = (null != metrics) ? metrics.begin() : 0;
+        final int allocations = (null != metrics && mCountingAllocations) ? getThreadAllocCount() : 0;
+
+        if (canvas.getClipBounds(mClipRect)) {
+            mLastFramePixels = (long) mClipRect.width() * mClipRect.height();
+        } else {
+            mLastFramePixels = 0;
+        }
+        mTotalPixels += mLastFramePixels;
+        mFrameCount++;
 
-        if (mShowOuterBorder) {
-            mOuterBorderPaint = getDefaultOuterBorderPaint();
+        drawBackground(canvas);
+        if (null != mHistory) {
+            final long now = System.nanoTime();
+            mHistory.draw(canvas, now, mHistoryRect.left, mHistoryRect.top, mRenderer.getBitmapPaint());
+            scheduleHistoryScroll(now);
         }
 
-        if (mShowRanges) {
-            setDefaultScaleRangePaints();
+        final float scale = GaugeRenderer.fitUnitSquare(canvas, getWidth(), getHeight());
+
+        if (mShowMarkers && null != mStats) {
+            mRenderer.drawMarkers(canvas, mStats);
+            getMarkerValues(mDrawnMarkers);
         }
-        if (mShowNeedle) {
-            setDefaultNeedlePaths();
-            mNeedleLeftPaint = getDefaultNeedleLeftPaint();
-            mNeedleScrewPaint = getDefaultNeedleScrewPaint();
+
+        if (mRenderer.isShowNeedle()) {
+            drawNeedles(canvas);
         }
-        if (mShowText) {
-            mTextValuePaint = getDefaultTextValuePaint();
+
+        if (mRenderer.isShowText()) {
+            mRenderer.drawText(canvas, mPhysics.getValue(0), scale);
         }
 
-        mFacePaint = getDefaultFacePaint();
+        if (!mStartup.isComplete()) {
+            final long now = System.nanoTime();
+            mStartup.mark(GaugeStartup.FIRST_FRAME, now);
+            if (null != mBackground) {
+                mStartup.mark(GaugeStartup.LAYER_READY, now);
+            }
+        }
 
+        if (null != metrics) {
+            if (mCountingAllocations) {
+                metrics.recordAllocations(getThreadAllocCount() - allocations);
+            }
+            metrics.end(GaugeMetrics.PHASE_DRAW, start);
+        }
     }
 
+    /**
+     * Renders the static layer and the needle sprites on the prerender thread instead of
+     * during layout. Until the layer is ready the needle is drawn alone. Takes effect at the
+     * next size change.
+     */
+    public void setAsyncInit(final boolean asyncInit) {
+        mAsyncInit = asyncInit;
+    }
 
+    public boolean isAsyncInit() {
+        return mAsyncInit;
+    }
 
-    private Paint getDefaultOuterBorderPaint() {
-        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setStyle(Paint.Style.FILL);
-        paint.setColor(Color.argb(245, 0, 0, 0));
-        return paint;
+    /**
+     * Calls {@code listener} once the first frame with the static layer has been drawn, or
+     * right away if it already has.
+     */
+    public void setOnStartupListener(final GaugeStartup.Listener listener) {
+        mStartup.setListener(listener);
     }
 
+    public GaugeStartup getStartup() {
+        return mStartup;
+    }
 
-    public Paint getDefaultFacePaint() {
-        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(Color.rgb(255, 255, 255));
-        return paint;
+    /**
+     * Starts or stops recording timing histograms and frame statistics. While disabled the
+     * instrumentation costs a null check per phase.
+     */
+    public void setMetricsEnabled(final boolean enabled) {
+        if (enabled && null == mMetrics) {
+            mMetrics = new GaugeMetrics();
+        } else if (!enabled && null != mMetrics) {
+            mMetrics = null;
+            setTrackAllocations(false);
+        }
     }
 
+    public boolean isMetricsEnabled() {
+        return null != mMetrics;
+    }
 
-    public void setDefaultNeedlePaths() {
-        final float x = 0.5f, y = 0.5f;
-        mNeedleLeftPath = new Path();
-        mNeedleLeftPath.moveTo(x, y);
-        mNeedleLeftPath.lineTo(x - mNeedleWidth, y);
-        mNeedleLeftPath.lineTo(x, y - mNeedleHeight);
-        mNeedleLeftPath.lineTo(x, y);
-        mNeedleLeftPath.lineTo(x - mNeedleWidth, y);
+    /**
+     * @return the live metrics, or null while disabled
+     */
+    public GaugeMetrics getMetrics() {
+        return mMetrics;
+    }
 
-        mNeedleRightPath = new Path();
-        mNeedleRightPath.moveTo(x, y);
-        mNeedleRightPath.lineTo(x + mNeedleWidth, y);
-        mNeedleRightPath.lineTo(x, y - mNeedleHeight);
-        mNeedleRightPath.lineTo(x, y);
-        mNeedleRightPath.lineTo(x + mNeedleWidth, y);
+    /**
+     * Also counts the objects allocated on the UI thread while drawing. This relies on the
+     * runtime's allocation counters, which slow allocation down somewhat while enabled; they
+     * are shared with other gauges through {@link AllocationCounting} and only held while the
+     * gauge is attached.
+     */
+    public void setTrackAllocations(final boolean track) {
+        mTrackAllocations = track && null != mMetrics;
+        updateAllocationCounting(null != getWindowToken());
     }
 
-    public Paint getDefaultNeedleLeftPaint() {
-        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(Color.rgb(0, 0, 0));
-        return paint;
+    private void updateAllocationCounting(final boolean attached) {
+        final boolean counting = mTrackAllocations && attached;
+        if (counting == mCountingAllocations) {
+            return;
+        }
+        mCountingAllocations = counting;
+        if (counting) {
+            AllocationCounting.acquire();
+        } else {
+            AllocationCounting.release();
+        }
     }
 
+    @SuppressWarnings("deprecation")
+    private static int getThreadAllocCount() {
+        return Debug.getThreadAllocCount();
+    }
 
-    public Paint getDefaultNeedleScrewPaint() {
-        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(Color.rgb(0, 0, 0));
-        return paint;
+    /**
+     * Backgrounds may be rendered on a prerender thread, which must not touch the metrics.
+     */
+    private GaugeMetrics getMetricsForThread() {
+        return (Looper.myLooper() == Looper.getMainLooper()) ? mMetrics : null;
     }
 
-    public void setDefaultScaleRangePaints() {
-        final int length = mRangeValues.length;
-        mRangePaints = new Paint[length];
-        for (int i = 0; i < length; i++) {
-            mRangePaints[i] = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
-            mRangePaints[i].setColor(mRangeColors[i]);
-            mRangePaints[i].setStyle(Paint.Style.STROKE);
-            mRangePaints[i].setStrokeWidth(0.005f);
-            mRangePaints[i].setTextSize(0.05f);
-            mRangePaints[i].setTypeface(Typeface.SANS_SERIF);
-            mRangePaints[i].setTextAlign(Align.CENTER);
-            mRangePaints[i].setShadowLayer(0.005f, 0.002f, 0.002f, mTextShadowColor);
+    private void drawBackground(final Canvas canvas) {
+        if (null != mBackground) {
+            canvas.drawBitmap(mBackground, 0, 0, mRenderer.getBitmapPaint());
         }
     }
 
-    public Paint getDefaultTextValuePaint() {
-        final Paint paint = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(Color.BLACK);
-        paint.setStyle(Paint.Style.FILL_AND_STROKE);
-        paint.setStrokeWidth(0.005f);
-        paint.setTextSize(mTextValueSize);
-        paint.setTextAlign(Align.CENTER);
-        paint.setTypeface(Typeface.SANS_SERIF);
-        paint.setShadowLayer(0.01f, 0.002f, 0.002f, mTextShadowColor);
-        return paint;
+    /**
+     * Draws the added needles, then the main one with the screw on top of them.
+     */
+    private void drawNeedles(final Canvas canvas) {
+        for (int i = mNeedles.size(); i >= 0; i--) {
+            if (!mNeedlesInitialized[i]) {
+                continue;
+            }
+            final float value = mPhysics.getValue(i);
+            mDrawnValues[i] = value;
+            mNeedlesDrawn[i] = true;
+            if (0 == i) {
+                mRenderer.drawNeedle(canvas, value);
+            } else {
+                mRenderer.drawNeedle(canvas, value, mNeedles.get(i - 1));
+            }
+        }
     }
 
-    public Paint getDefaultTextUnitPaint() {
-        final Paint paint = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
-        paint.setColor(Color.BLACK);
-        paint.setStyle(Paint.Style.FILL_AND_STROKE);
-        paint.setStrokeWidth(0.005f);
-        paint.setTextSize(mTextUnitSize);
-        paint.setTextAlign(Align.CENTER);
-        paint.setShadowLayer(0.01f, 0.002f, 0.002f, mTextShadowColor);
-        return paint;
+    private final FrameDriver.Callback mFrameCallback = new FrameDriver.Callback() {
+        @Override
+        public boolean doFrame(final long frameTimeNanos) {
+            return computeCurrentValue(frameTimeNanos);
+        }
+    };
+
+    /**
+     * Advances the needle to the given vsync time.
+     *
+     * @return true while the needle still needs frames
+     */
+    private boolean computeCurrentValue(final long frameTimeNanos) {
+        drainSamples();
+        if (!canAnimate()) {
+            mAnimating = false;
+            idleSamples();
+            return false;
+        }
+        final GaugeMetrics metrics = mMetrics;
+        final long start = (null != metrics) ? metrics.begin() : 0;
+        if (-1 != mLastFrameNanos) {
+            mPhysics.advanceNanos(frameTimeNanos - mLastFrameNanos);
+        }
+        if (null != metrics) {
+            metrics.end(GaugeMetrics.PHASE_NEEDLE, start);
+            metrics.recordFrame(frameTimeNanos, mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+
+        // The needles that moved are invalidated together, as one region
+        mDirtyBounds.setEmpty();
+        final int count = getNeedleCount();
+        for (int i = 0; i < count; i++) {
+            if (!mNeedlesInitialized[i]
+                    || (!mPhysics.isMoving(i) && mNeedlesDrawn[i] && mDrawnValues[i] == mPhysics.getValue(i))) {
+                continue;
+            }
+            final float angle = mRenderer.getAngleForValue(mPhysics.getValue(i));
+            // A needle that just stopped is drawn where it stopped even under a frame rate cap
+            final int decision = mPhysics.isMoving(i)
+                    ? mGovernors[i].onFrame(frameTimeNanos, angle, mRenderer.getAngleForValue(mPhysics.getTarget(i)))
+                    : mGovernors[i].onRest(frameTimeNanos, angle);
+            if (FrameGovernor.SETTLED == decision) {
+                // Close enough that nobody can tell; snap and let the loop stop
+                mPhysics.settle(i);
+                unionNeedleDirtyBounds(mDirtyBounds, i);
+            } else if (FrameGovernor.DRAW == decision) {
+                unionNeedleDirtyBounds(mDirtyBounds, i);
+            }
+        }
+        invalidateNeedleBounds(mDirtyBounds);
+
+        mAnimating = mPhysics.isAnyMoving();
+        if (!mAnimating) {
+            idleSamples();
+        }
+        return mAnimating;
     }
 
-    @Override
-    protected void onRestoreInstanceState(final Parcelable state) {
-        final Bundle bundle = (Bundle) state;
-        final Parcelable superState = bundle.getParcelable(SUPER_STATE);
-        super.onRestoreInstanceState(superState);
+    private boolean canAnimate() {
+        return mPhysics.isAnyMoving() && null != getWindowToken() && isShown();
+    }
 
-        mNeedleInitialized = bundle.getBoolean(NEEDLE_INITIALIZED);
-        mNeedleVelocity = bundle.getFloat(NEEDLE_VELOCITY);
-        mNeedleAcceleration = bundle.getFloat(NEEDLE_ACCELERATION);
-        mNeedleLastMoved = bundle.getLong(NEEDLE_LAST_MOVED);
-        mCurrentValue = bundle.getFloat(NEEDLE_CURRENT_VALUE);
-        mTargetValue = bundle.getFloat(NEEDLE_TARGET_VALUE);
+    private void startAnimation() {
+        if (!mAnimating && canAnimate()) {
+            mAnimating = true;
+            // The first frame only establishes the time base
+            mLastFrameNanos = -1;
+            for (FrameGovernor governor : mGovernors) {
+                governor.reset();
+            }
+            updateFrameRateCap();
+            // The frame loop drains the sample queue from now on
+            mSamplesIdle.set(false);
+            FrameDriver.getInstance().add(mFrameCallback);
+        }
     }
 
-    private void initScale() {
-        mScaleRotation = (mScaleStartAngle + 180) % 360;
-        mDivisionValue = (mScaleEndValue - mScaleStartValue) / mDivisions;
-        Log.d("mDivisionValue:", String.valueOf(mDivisionValue));
-        mSubdivisionValue = mDivisionValue / mSubdivisions;
-        mSubdivisionAngle = (360 - 2 * mScaleStartAngle) / (mDivisions * mSubdivisions);
+    /**
+     * @param model one of the {@link NeedlePhysics} {@code MODEL_} constants; a moving needle
+     *              carries on from where it is
+     */
+    public void setNeedleModel(final int model) {
+        mPhysics.setModel(model);
     }
 
-    @Override
-    protected Parcelable onSaveInstanceState() {
-        final Parcelable superState = super.onSaveInstanceState();
+    public int getNeedleModel() {
+        return mPhysics.getModel();
+    }
 
-        final Bundle state = new Bundle();
-        state.putParcelable(SUPER_STATE, superState);
-        state.putBoolean(NEEDLE_INITIALIZED, mNeedleInitialized);
-        state.putFloat(NEEDLE_VELOCITY, mNeedleVelocity);
-        state.putFloat(NEEDLE_ACCELERATION, mNeedleAcceleration);
-        state.putLong(NEEDLE_LAST_MOVED, mNeedleLastMoved);
-        state.putFloat(NEEDLE_CURRENT_VALUE, mCurrentValue);
-        state.putFloat(NEEDLE_TARGET_VALUE, mTargetValue);
-        return state;
+    /**
+     * Adds a needle that is driven by {@link #setTargetValue(int, float)} and drawn beneath
+     * the main one, over the same static layer and in the same pass.
+     *
+     * @return the index of the new needle; the main needle is 0
+     */
+    public int addNeedle(final GaugeNeedle needle) {
+        final int index = getNeedleCount();
+        final int count = index + 1;
+        mNeedles.add(needle);
+
+        // Growing is rare, so the needle state is simply copied over
+        final NeedlePhysics physics = new NeedlePhysics(count);
+        physics.setModel(mPhysics.getModel());
+        physics.setDampingRatio(mPhysics.getDampingRatio());
+        physics.setFrequency(mPhysics.getFrequency());
+        physics.setMaxRate(mPhysics.getMaxRate());
+        for (int i = 0; i < index; i++) {
+            physics.setState(i, mPhysics.getValue(i), mPhysics.getVelocity(i), mPhysics.getAcceleration(i),
+                    mPhysics.getTarget(i));
+        }
+        mPhysics = physics;
+        mTargetValues = copyOf(mTargetValues, count);
+        mDrawnValues = copyOf(mDrawnValues, count);
+        mNeedlesInitialized = copyOf(mNeedlesInitialized, count);
+        mNeedlesDrawn = copyOf(mNeedlesDrawn, count);
+        final FrameGovernor[] governors = new FrameGovernor[count];
+        System.arraycopy(mGovernors, 0, governors, 0, index);
+        governors[index] = new FrameGovernor();
+        mGovernors = governors;
+        updateGovernorRadii();
+        updateFrameRateCap();
+        return index;
     }
 
+    private static float[] copyOf(final float[] array, final int length) {
+        final float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
 
-    @Override
-    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
-        // Loggable.log.debug(String.format("widthMeasureSpec=%s, heightMeasureSpec=%s",
-        // View.MeasureSpec.toString(widthMeasureSpec),
-        // View.MeasureSpec.toString(heightMeasureSpec)));
+    private static boolean[] copyOf(final boolean[] array, final int length) {
+        final boolean[] copy = new boolean[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
 
-        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-        final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-        final int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-        final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+    /**
+     * @return the number of needles, including the main one
+     */
+    public int getNeedleCount() {
+        return mNeedles.size() + 1;
+    }
 
-        final int chosenWidth = chooseDimension(widthMode, widthSize);
-        final int chosenHeight = chooseDimension(heightMode, heightSize);
-        setMeasuredDimension(chosenWidth, chosenHeight);
+    /**
+     * @param index at least 1; the main needle has no {@link GaugeNeedle}
+     */
+    public GaugeNeedle getNeedle(final int index) {
+        return mNeedles.get(index - 1);
     }
 
-    private int chooseDimension(final int mode, final int size) {
-        switch (mode) {
-            case View.MeasureSpec.AT_MOST:
-            case View.MeasureSpec.EXACTLY:
-                return size;
-            case View.MeasureSpec.UNSPECIFIED:
-            default:
-                return getDefaultDimension();
+    private void updateGovernorRadii() {
+        final float size = Math.min(getWidth(), getHeight());
+        mGovernors[0].setRadius(mRenderer.isShowNeedle() ? mRenderer.getNeedleLength() * size : 0);
+        for (int i = 1; i < mGovernors.length; i++) {
+            mGovernors[i].setRadius(mRenderer.isShowNeedle() ? mNeedles.get(i - 1).getHeight() * size : 0);
         }
     }
 
-    private int getDefaultDimension() {
-        return SIZE;
+    /**
+     * Caps the redraw rate of the needle animation, e.g. on a thermal warning from the app,
+     * or lifts the cap with 0. Battery saver lowers it further to the
+     * {@code gauge:powerSaveFrameRate}.
+     */
+    public void setMaxFrameRate(final int fps) {
+        mMaxFrameRate = fps;
+        updateFrameRateCap();
     }
 
-    @Override
-    protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
-        drawGauge();
+    public int getMaxFrameRate() {
+        return mMaxFrameRate;
     }
 
-    private void drawGauge() {
-        if (null != mBackground) {
-            // Let go of the old background
-            mBackground.recycle();
+    /**
+     * @return the governor of the main needle
+     */
+    public FrameGovernor getFrameGovernor() {
+        return mGovernors[0];
+    }
+
+    private void updateFrameRateCap() {
+        int fps = mMaxFrameRate;
+        if (mPowerSaveFrameRate > 0 && isPowerSaveMode()) {
+            fps = (fps > 0) ? Math.min(fps, mPowerSaveFrameRate) : mPowerSaveFrameRate;
         }
-        // Create a new background according to the new width and height
-        mBackground = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(mBackground);
-        final float scale = Math.min(getWidth(), getHeight());
-        canvas.scale(scale, scale);
-        canvas.translate((scale == getHeight()) ? ((getWidth() - scale) / 2) / scale : 0
-                , (scale == getWidth()) ? ((getHeight() - scale) / 2) / scale : 0);
+        for (FrameGovernor governor : mGovernors) {
+            governor.setMaxFrameRate(fps);
+        }
+    }
 
-        drawRim(canvas);
-        drawFace(canvas);
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private boolean isPowerSaveMode() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        final PowerManager power = (PowerManager) getContext().getSystemService(Context.POWER_SERVICE);
+        return null != power && power.isPowerSaveMode();
+    }
 
-        if (mShowRanges) {
-            drawScale(canvas);
+    private void stopAnimation() {
+        if (mAnimating) {
+            mAnimating = false;
+            FrameDriver.getInstance().remove(mFrameCallback);
+            idleSamples();
         }
     }
 
+    /**
+     * Lets the gauge terminate a {@link SpeedStages} pipeline; same as
+     * {@link #offerSample(long, float)}.
+     */
     @Override
-    protected void onDraw(final Canvas canvas) {
-        drawBackground(canvas);
-
-        final float scale = Math.min(getWidth(), getHeight());
-        canvas.scale(scale, scale);
-        canvas.translate((scale == getHeight()) ? ((getWidth() - scale) / 2) / scale : 0
-                , (scale == getWidth()) ? ((getHeight() - scale) / 2) / scale : 0);
+    public void onSample(final long timestampNanos, final float value) {
+        offerSample(timestampNanos, value);
+    }
 
-        if (mShowNeedle) {
-            drawNeedle(canvas);
+    /**
+     * Queues a timestamped sample as the new target. Safe to call from a background thread
+     * at sensor rate: it never blocks or allocates, and the samples that arrive within one
+     * frame are coalesced by the {@link #setSampleReduction(int) reduction}. With the default
+     * queue only a single producer thread may call this; see {@link #setSampleQueue(SampleQueue)}.
+     *
+     * @return false if the queue was full and the sample was dropped
+     */
+    public boolean offerSample(final long timestampNanos, final float value) {
+        final boolean queued = mSampleQueue.offer(timestampNanos, value);
+        // Only the first sample after the gauge went idle costs a message
+        if (queued && mSamplesIdle.compareAndSet(true, false)) {
+            mMainHandler.post(mDrainSamples);
         }
+        return queued;
+    }
+
+    /**
+     * Replaces the sample queue, e.g. with an {@link MpscSampleQueue} when several threads
+     * feed the gauge. Call on the UI thread before any producer starts.
+     */
+    public void setSampleQueue(final SampleQueue queue) {
+        mSampleQueue = queue;
+    }
+
+    public SampleQueue getSampleQueue() {
+        return mSampleQueue;
+    }
+
+    /**
+     * @param reduction one of the {@link SampleReducer} modes
+     */
+    public void setSampleReduction(final int reduction) {
+        mSampleReducer.setMode(reduction);
+    }
 
-        if (mShowText) {
-            drawText(canvas);
+    private final Runnable mDrainSamples = new Runnable() {
+        @Override
+        public void run() {
+            drainSamples();
+            if (!mAnimating) {
+                idleSamples();
+            }
+        }
+    };
+
+    // Filters and records every queued sample, not just the one value per frame the reducer keeps
+    private final SampleSink mIncomingSamples = new SampleSink() {
+        @Override
+        public void onSample(final long timestampNanos, final float value) {
+            final float filtered = (null != mFilter) ? mFilter.filter(timestampNanos, value) : value;
+            recordSample(timestampNanos, filtered);
+            mSampleReducer.onSample(timestampNanos, filtered);
         }
+    };
 
-        computeCurrentValue();
+    private void drainSamples() {
+        mSampleReducer.reset();
+        if (mSampleQueue.drainTo(mIncomingSamples) > 0) {
+            applyTargetValue(mSampleReducer.getValue());
+            invalidateRecorded();
+        }
     }
 
-    private void drawBackground(final Canvas canvas) {
-        if (null != mBackground) {
-            canvas.drawBitmap(mBackground, 0, 0, mBackgroundPaint);
+    /**
+     * Feeds a conditioned value to the statistics and the history.
+     */
+    private void recordSample(final long timestampNanos, final float value) {
+        if (null != mStats || null != mHistory) {
+            final float clamped = mRenderer.clampValue(value);
+            if (null != mStats) {
+                mStats.add(timestampNanos, clamped);
+            }
+            if (null != mHistory) {
+                mHistory.add(timestampNanos, clamped);
+            }
         }
     }
 
-    private void drawRim(final Canvas canvas) {
-        Path path = new Path();
-        path.addArc(mOuterBorderRect,130, 280);
-        mOuterBorderPaint.setColor(Color.BLACK);
-        mOuterBorderPaint.setStyle(Paint.Style.STROKE);
-        mOuterBorderPaint.setStrokeWidth(OUTER_BORDER_WIDTH);
-        canvas.drawPath(path, mOuterBorderPaint);
+    private void invalidateRecorded() {
+        expireStatistics();
+        invalidateMarkers();
+        if (null != mHistory) {
+            invalidate(mHistoryRect);
+        }
     }
 
-    private void drawFace(final Canvas canvas) {
-        // Draw the face gradient
-        mFacePaint.setColor(Color.WHITE);
-//        canvas.drawArc(mFaceRect, 130, 280, false, mFacePaint);
+    /**
+     * Ages the statistics window to now and schedules the next time it changes, so that the
+     * held peak and the window figures drop out after {@code gauge:statsWindow} even when no
+     * more samples arrive.
+     */
+    private void expireStatistics() {
+        removeCallbacks(mExpireStatistics);
+        if (null == mStats) {
+            return;
+        }
+        final long now = System.nanoTime();
+        mStats.expire(now);
+        final long next = mStats.getNextExpiryNanos();
+        if (-1 != next && null != getWindowToken()) {
+            postDelayed(mExpireStatistics, Math.max((next - now + 999999) / 1000000, 1));
+        }
+    }
 
+    private final Runnable mExpireStatistics = new Runnable() {
+        @Override
+        public void run() {
+            expireStatistics();
+            invalidateMarkers();
+        }
+    };
+
+    /**
+     * Redraws the history when it next scrolls, so that it keeps showing the last
+     * {@code gauge:historyWindow} when no samples arrive. Rescheduled only when that time changes.
+     */
+    private void scheduleHistoryScroll(final long now) {
+        final long next = mHistory.getNextScrollNanos();
+        if (next == mHistoryScrollNanos || null == getWindowToken()) {
+            return;
+        }
+        removeCallbacks(mScrollHistory);
+        mHistoryScrollNanos = next;
+        if (-1 != next) {
+            postDelayed(mScrollHistory, Math.max((next - now + 999999) / 1000000, 1));
+        }
     }
 
-    private void drawText(final Canvas canvas) {
-        final String textValue = !TextUtils.isEmpty(mTextValue) ? mTextValue : valueString(mCurrentValue);
+    private final Runnable mScrollHistory = new Runnable() {
+        @Override
+        public void run() {
+            mHistoryScrollNanos = -1;
+            invalidate(mHistoryRect);
+        }
+    };
 
-        final float startY = CENTER + 0.1f;
+    private void idleSamples() {
+        mSamplesIdle.set(true);
+        // A producer may have queued a sample while the flag was still cleared
+        if (!mSampleQueue.isEmpty() && mSamplesIdle.compareAndSet(true, false)) {
+            mMainHandler.post(mDrainSamples);
+        }
+    }
 
-        drawText(canvas,textValue, CENTER, startY, mTextValuePaint);
-        if (!TextUtils.isEmpty(mTextUnit)) {
-            drawText(canvas,mTextUnit, CENTER , startY + 0.12f, mTextValuePaint);
+    @Override
+    protected void onVisibilityChanged(final View changedView, final int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (isShown()) {
+            startAnimation();
+        } else {
+            stopAnimation();
         }
     }
 
-    private void drawScale(final Canvas canvas) {
-        canvas.save();
-        // On canvas, North is 0 degrees, East is 90 degrees, South is 180 etc.
-        // We start the scale somewhere South-West so we need to first rotate the canvas.
-        canvas.rotate(mScaleRotation, 0.5f, 0.5f);
-        Log.d("mScaleRotation: ", String.valueOf(mScaleRotation));
+    @Override
+    protected void onWindowVisibilityChanged(final int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (VISIBLE == visibility) {
+            startAnimation();
+        } else {
+            stopAnimation();
+        }
+    }
 
-        final int totalTicks = mDivisions * mSubdivisions + 1;
-        for (int i = 0; i < totalTicks; i++) {
-            final float y1 = mScaleRect.top;
-            Log.d("mScaleRect.top: ", String.valueOf(mScaleRect.top));
+    /**
+     * Invalidates the area swept by the needle between its last drawn position and its
+     * current one, plus the readout, instead of the whole view.
+     */
+    private void invalidateNeedle(final int needle) {
+        mDirtyBounds.setEmpty();
+        unionNeedleDirtyBounds(mDirtyBounds, needle);
+        invalidateNeedleBounds(mDirtyBounds);
+    }
 
-            final float y3 = y1 + 0.090f; // height of subdivision
+    /**
+     * Adds the area swept by a needle between its last drawn position and its current one,
+     * plus the screw, and the readout for the main needle.
+     */
+    private void unionNeedleDirtyBounds(final RectF bounds, final int needle) {
+        final float[] outline = (0 == needle) ? mRenderer.getNeedlePoints() : mNeedles.get(needle - 1).getOutline();
+        final float value = mPhysics.getValue(needle);
+        if (bounds.isEmpty()) {
+            bounds.set(0.5f - NEEDLE_SCREW_RADIUS, 0.5f - NEEDLE_SCREW_RADIUS,
+                    0.5f + NEEDLE_SCREW_RADIUS, 0.5f + NEEDLE_SCREW_RADIUS);
+        }
+        // Only the main needle is drawn from the sprites
+        final NeedleAtlas atlas = (0 == needle) ? mRenderer.getNeedleAtlas() : null;
+        unionNeedleBounds(bounds, value, outline, atlas);
+        if (mNeedlesDrawn[needle] && mDrawnValues[needle] != value) {
+            unionNeedleBounds(bounds, mDrawnValues[needle], outline, atlas);
+        }
+        if (0 == needle && mRenderer.isShowReadout()) {
+            bounds.union(mRenderer.getReadoutBounds());
+        }
+    }
 
-            final float value = getValueForTick(i);
-            final Paint paint = getRangePaint(value);
+    private void invalidateNeedleBounds(final RectF bounds) {
+        if (bounds.isEmpty()) {
+            return;
+        }
+        if (Math.min(getWidth(), getHeight()) <= 0 || !mRenderer.isShowNeedle()) {
+            invalidate();
+            return;
+        }
+        invalidateUnitRect(bounds);
+    }
 
-            float div = mScaleEndValue / (float) mDivisions;
-            float mod = value % div;
-            if ((Math.abs(mod - 0) < 0.001) || (Math.abs(mod - div) < 0.001)) {
-                // Draw a division tick
-                paint.setStrokeWidth(0.01f);
-                paint.setColor(Color.rgb(87,97,114));
-                canvas.drawLine(0.5f, y1 - 0.015f, 0.5f, y3 - 0.03f, paint);
-                Log.d("TEXT:",valueString(value));
+    /**
+     * Invalidates the old and new spots of the markers that moved.
+     */
+    private void invalidateMarkers() {
+        if (!mShowMarkers || null == mStats || 0 == mStats.getSessionCount()) {
+            return;
+        }
+        getMarkerValues(mMarkerValues);
+        mDirtyBounds.setEmpty();
+        for (int i = 0; i < mMarkerValues.length; i++) {
+            if (Float.compare(mMarkerValues[i], mDrawnMarkers[i]) != 0) {
+                unionMarkerBounds(mDirtyBounds, mMarkerValues[i]);
+                unionMarkerBounds(mDirtyBounds, mDrawnMarkers[i]);
             }
-            canvas.rotate(mSubdivisionAngle, 0.5f, 0.5f);
-            Log.d("mSubdivisionAngle: ", String.valueOf(mSubdivisionAngle));
         }
-        canvas.restore();
+        if (!mDirtyBounds.isEmpty()) {
+            invalidateUnitRect(mDirtyBounds);
+        }
     }
 
+    private void getMarkerValues(final float[] values) {
+        values[0] = mStats.getSessionMin();
+        values[1] = mStats.getSessionMax();
+        values[2] = mStats.getSessionAverage();
+        values[3] = mStats.getWindowMax();
+    }
 
-    private void drawText(Canvas canvas, String value, float x, float y, Paint paint)
-    {
-        //Save original font size
-        float originalTextSize = paint.getTextSize();
+    private void unionMarkerBounds(final RectF bounds, final float value) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        mDirtyMatrix.setRotate(mRenderer.getAngleForValue(value), 0.5f, 0.5f);
+        mDirtyMatrix.mapPoints(mDirtyPoints, mRenderer.getScene().getMarkerOutline());
+        for (int i = 0; i < mDirtyPoints.length; i += 2) {
+            if (bounds.isEmpty()) {
+                bounds.set(mDirtyPoints[i], mDirtyPoints[i + 1], mDirtyPoints[i], mDirtyPoints[i + 1]);
+            } else {
+                bounds.union(mDirtyPoints[i], mDirtyPoints[i + 1]);
+            }
+        }
+    }
 
-        // set a magnification factor
-        final float magnifier = 100f;
+    /**
+     * Invalidates the pixels covered by a rectangle of the unit square.
+     */
+    private void invalidateUnitRect(final RectF bounds) {
+        if (Math.min(getWidth(), getHeight()) <= 0) {
+            invalidate();
+            return;
+        }
+        // One extra pixel on each side for anti-aliasing
+        mapUnitRect(bounds, mDirtyRect, 1);
+        invalidate(mDirtyRect);
+    }
 
-        // Scale the canvas
-        canvas.save();
-        canvas.scale(1f / magnifier, 1f / magnifier);
+    /**
+     * Maps a rectangle of the unit square to the pixels it covers, grown by {@code outset}.
+     */
+    private void mapUnitRect(final RectF bounds, final Rect out, final int outset) {
+        final float scale = Math.min(getWidth(), getHeight());
+        final float dx = (scale == getHeight()) ? (getWidth() - scale) / 2 : 0;
+        final float dy = (scale == getWidth()) ? (getHeight() - scale) / 2 : 0;
+        out.set((int) Math.floor(bounds.left * scale + dx) - outset,
+                (int) Math.floor(bounds.top * scale + dy) - outset,
+                (int) Math.ceil(bounds.right * scale + dx) + outset,
+                (int) Math.ceil(bounds.bottom * scale + dy) + outset);
+    }
 
-        // increase the font size
-        paint.setTextSize(originalTextSize * magnifier);
+    /**
+     * Adds the needle at {@code value}, or the sprites {@code atlas} draws for it if not null.
+     */
+    private void unionNeedleBounds(final RectF bounds, final float value, final float[] outline,
+                                   final NeedleAtlas atlas) {
+        final float angle = mRenderer.getAngleForValue(value);
+        if (null == atlas) {
+            unionOutlineBounds(bounds, angle, outline);
+            return;
+        }
+        final int count = atlas.getDrawnAngles(angle, mSpriteAngles);
+        for (int i = 0; i < count; i++) {
+            unionOutlineBounds(bounds, mSpriteAngles[i], outline);
+        }
+    }
 
-        canvas.drawText(value, x*magnifier, (y * magnifier) + TEXT_OFFSET_Y,paint );
+    private void unionOutlineBounds(final RectF bounds, final float angle, final float[] outline) {
+        mDirtyMatrix.setRotate(angle, 0.5f, 0.5f);
+        mDirtyMatrix.mapPoints(mDirtyPoints, outline);
+        for (int i = 0; i < mDirtyPoints.length; i += 2) {
+            bounds.union(mDirtyPoints[i], mDirtyPoints[i + 1]);
+        }
+    }
 
-//        canvas.drawTextOnPath(value, textPath, 0.0f, 0.0f, paint);
+    /**
+     * Number of pixels redrawn in the last frame, as clipped by the dirty region. With
+     * hardware acceleration on API 21+ the dirty region is ignored and this is the full view.
+     */
+    public long getLastFramePixelCount() {
+        return mLastFramePixels;
+    }
 
-        // bring everything back to normal
-        canvas.restore();
-        paint.setTextSize(originalTextSize);
+    public long getTotalPixelCount() {
+        return mTotalPixels;
     }
 
+    public long getFrameCount() {
+        return mFrameCount;
+    }
 
-    private String valueString(final float value) {
-        return String.format("%d", (int) value);
+    /**
+     * Conditions the values from {@link #setTargetValue(float)} and {@link #offerSample(long, float)}
+     * before they reach the needle, or null to use them as they are. UI thread only.
+     */
+    public void setSignalFilter(final SignalFilter filter) {
+        mFilter = filter;
     }
 
-    private float getValueForTick(final int tick) {
-        return tick * (mDivisionValue / mSubdivisions);
+    public SignalFilter getSignalFilter() {
+        return mFilter;
     }
 
-    private Paint getRangePaint(final float value) {
-        final int length = mRangeValues.length;
-        for (int i = 0; i < length - 1; i++) {
-            if (value < mRangeValues[i]) return mRangePaints[i];
-        }
-        if (value <= mRangeValues[length - 1]) return mRangePaints[length - 1];
-        throw new IllegalArgumentException("Value " + value + " out of range!");
+    /**
+     * Ignores filtered targets that differ from the current one by less than {@code deadband},
+     * so that residual noise does not keep the needle animating.
+     */
+    public void setFilterDeadband(final float deadband) {
+        mFilterDeadband = deadband;
     }
 
-    private void drawNeedle(final Canvas canvas) {
-        if (mNeedleInitialized) {
-            final float angle = getAngleForValue(mCurrentValue);
-            canvas.save();
-            canvas.rotate(angle, 0.5f, 0.5f);
-            canvas.drawPath(mNeedleLeftPath, mNeedleLeftPaint);
-            canvas.restore();
-            canvas.drawCircle(0.5f, 0.5f, 0.025f, mNeedleScrewPaint);
+    public void setTargetValue(final float value) {
+        final long now = System.nanoTime();
+        final float filtered = (null != mFilter) ? mFilter.filter(now, value) : value;
+        recordSample(now, filtered);
+        applyTargetValue(filtered);
+        invalidateRecorded();
+    }
 
+    /**
+     * Keeps rolling statistics of the incoming values, after filtering and clamping, for
+     * {@link #getStatistics()} and the markers. On by default with {@code gauge:showMarkers}.
+     */
+    public void setStatisticsEnabled(final boolean enabled) {
+        if (enabled && null == mStats) {
+            mStats = new RollingStats(STATS_CAPACITY, (long) (mStatsWindow * 1e9));
+            for (int i = 0; i < mDrawnMarkers.length; i++) {
+                mDrawnMarkers[i] = Float.NaN;
+            }
+        } else if (!enabled) {
+            mStats = null;
         }
+        invalidate();
     }
 
-    private float getAngleForValue(final float value) {
-        return (mScaleRotation + (value / mSubdivisionValue) * mSubdivisionAngle) % 360;
+    /**
+     * Min, max and average over the session and over the last {@code gauge:statsWindow}
+     * seconds, or null while statistics are disabled. UI thread only.
+     */
+    public RollingStats getStatistics() {
+        return mStats;
     }
 
-    private void computeCurrentValue() {
-        if (!(Math.abs(mCurrentValue - mTargetValue) > 0.01f)) {
-            return;
+    /**
+     * Starts a new session, clearing all statistics and markers.
+     */
+    public void resetStatistics() {
+        if (null != mStats) {
+            mStats.reset();
+            invalidate();
         }
-        if (-1 != mNeedleLastMoved) {
-            final float time = (System.currentTimeMillis() - mNeedleLastMoved) / 1000.0f;
-            final float direction = Math.signum(mNeedleVelocity);
-            if (Math.abs(mNeedleVelocity) < 90.0f) {
-                mNeedleAcceleration = 5.0f * (mTargetValue - mCurrentValue);
-            } else {
-                mNeedleAcceleration = 0.0f;
-            }
+    }
 
-            mNeedleAcceleration = 5.0f * (mTargetValue - mCurrentValue);
-            mCurrentValue += mNeedleVelocity * time;
-            mNeedleVelocity += mNeedleAcceleration * time;
+    public void setShowMarkers(final boolean show) {
+        mShowMarkers = show;
+        if (show) {
+            setStatisticsEnabled(true);
+        }
+        invalidate();
+    }
 
-            if ((mTargetValue - mCurrentValue) * direction < 0.01f * direction) {
-                mCurrentValue = mTargetValue;
-                mNeedleVelocity = 0.0f;
-                mNeedleAcceleration = 0.0f;
-                mNeedleLastMoved = -1L;
-            } else {
-                mNeedleLastMoved = System.currentTimeMillis();
-            }
+    public boolean isShowMarkers() {
+        return mShowMarkers;
+    }
 
-            invalidate();
+    /**
+     * The recent history band, or null without {@code gauge:showHistory}.
+     */
+    public HistoryStrip getHistory() {
+        return mHistory;
+    }
 
-        } else {
-            mNeedleLastMoved = System.currentTimeMillis();
-            computeCurrentValue();
+    /**
+     * Moves an added needle, e.g. a set point. Unlike the main needle's value it is neither
+     * filtered nor recorded in the statistics.
+     */
+    public void setTargetValue(final int needle, final float value) {
+        if (0 == needle) {
+            setTargetValue(value);
+            return;
         }
+        final float target = mRenderer.clampValue(value);
+        mTargetValues[needle] = target;
+        mPhysics.setTarget(needle, target);
+        mNeedlesInitialized[needle] = true;
+        invalidateNeedle(needle);
+        startAnimation();
     }
 
-    public void setTargetValue(final float value) {
-        if (mShowScale || mShowRanges) {
-            if (value < mScaleStartValue) {
-                mTargetValue = mScaleStartValue;
-            } else if (value > mScaleEndValue) {
-                mTargetValue = mScaleEndValue;
-            } else {
-                mTargetValue = value;
-            }
-        } else {
-            mTargetValue = value;
+    public float getTargetValue(final int needle) {
+        return mTargetValues[needle];
+    }
+
+    public float getCurrentValue(final int needle) {
+        return mPhysics.getValue(needle);
+    }
+
+    private void applyTargetValue(final float value) {
+        final float target = mRenderer.clampValue(value);
+        if (mNeedlesInitialized[0] && Math.abs(target - mTargetValues[0]) < mFilterDeadband) {
+            return;
         }
-        mNeedleInitialized = true;
-        invalidate();
+        mTargetValues[0] = target;
+        mPhysics.setTarget(0, target);
+        mNeedlesInitialized[0] = true;
+        invalidateNeedle(0);
+        startAnimation();
     }
 
 }
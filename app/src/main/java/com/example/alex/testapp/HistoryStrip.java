@@ -0,0 +1,210 @@
+package com.example.alex.testapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
+/**
+ * A scrolling trace of recent values, kept in an offscreen strip one pixel column per
+ * {@code window / width} of time.
+ * <p>
+ * Samples are decimated to the minimum and maximum of their column, and only the newest
+ * column is ever drawn into the strip. Columns are ring indexed, so scrolling costs nothing:
+ * {@link #draw(Canvas, float, float, Paint)} blits the strip in two parts, oldest column
+ * first. The cost of a sample and of a frame is therefore the same however long the window.
+ * The strip scrolls with time, both as samples arrive and as frames are drawn, so it always
+ * shows the window up to now; columns without samples stay empty.
+ */
+public class HistoryStrip {
+
+    private final long mWindowNanos;
+    private final float mMinValue;
+    private final float mMaxValue;
+    private final Paint mPaint = new Paint();
+    private final Paint mClearPaint = new Paint();
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private int mWidth;
+    private int mHeight;
+    private long mColumnNanos;
+
+    private boolean mStarted;
+    private long mColumn;
+    // Newest column that holds a sample
+    private long mSampleColumn;
+    private float mColumnMin;
+    private float mColumnMax;
+    private boolean mColumnDirty;
+
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    /**
+     * @param minValue value drawn at the bottom of the strip
+     * @param maxValue value drawn at the top of the strip
+     */
+    public HistoryStrip(final long windowNanos, final float minValue, final float maxValue, final int color) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowNanos);
+        }
+        mWindowNanos = windowNanos;
+        mMinValue = minValue;
+        mMaxValue = maxValue;
+        mPaint.setColor(color);
+        mClearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+    }
+
+    /**
+     * (Re)allocates the strip for a size in pixels, dropping the history so far.
+     */
+    public void setSize(final int width, final int height) {
+        if (null != mBitmap && width == mWidth && height == mHeight) {
+            return;
+        }
+        recycle();
+        mWidth = width;
+        mHeight = height;
+        mStarted = false;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+        mColumnNanos = Math.max(mWindowNanos / width, 1);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public void recycle() {
+        if (null != mBitmap) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mCanvas = null;
+        }
+    }
+
+    /**
+     * Adds a sample; timestamps are expected in order, a late one counts towards the newest
+     * column.
+     */
+    public void add(final long timestampNanos, final float value) {
+        if (null == mBitmap) {
+            return;
+        }
+        advance(timestampNanos);
+        if (mSampleColumn != mColumn) {
+            mColumnMin = value;
+            mColumnMax = value;
+        } else {
+            mColumnMin = Math.min(mColumnMin, value);
+            mColumnMax = Math.max(mColumnMax, value);
+        }
+        mSampleColumn = mColumn;
+        mColumnDirty = true;
+    }
+
+    /**
+     * Scrolls the strip to the column of {@code nowNanos}, clearing the columns passed over.
+     */
+    private void advance(final long nowNanos) {
+        final long column = nowNanos / mColumnNanos;
+        if (mStarted && column <= mColumn) {
+            return;
+        }
+        if (mStarted) {
+            if (mColumnDirty) {
+                drawColumn();
+            }
+            if (column - mColumn > mWidth) {
+                mBitmap.eraseColor(0);
+            } else {
+                for (long c = mColumn + 1; c <= column; c++) {
+                    clearColumn(slotOf(c));
+                }
+            }
+        } else {
+            // No sample yet
+            mSampleColumn = column - mWidth;
+        }
+        mStarted = true;
+        mColumn = column;
+    }
+
+    /**
+     * @return the time, on the clock of the samples, at which the strip next scrolls while
+     * it still shows a sample, or -1 once it is empty
+     */
+    public long getNextScrollNanos() {
+        if (null == mBitmap || !mStarted || mColumn - mSampleColumn >= mWidth) {
+            return -1;
+        }
+        return (mColumn + 1) * mColumnNanos;
+    }
+
+    /**
+     * Forgets the history.
+     */
+    public void clear() {
+        if (null != mBitmap) {
+            mBitmap.eraseColor(0);
+        }
+        mStarted = false;
+        mColumnDirty = false;
+    }
+
+    private int slotOf(final long column) {
+        return (int) (((column % mWidth) + mWidth) % mWidth);
+    }
+
+    private void clearColumn(final int slot) {
+        mCanvas.drawRect(slot, 0, slot + 1, mHeight, mClearPaint);
+    }
+
+    private void drawColumn() {
+        final int slot = slotOf(mColumn);
+        clearColumn(slot);
+        final float range = mMaxValue - mMinValue;
+        final float top = (range > 0) ? mHeight * (mMaxValue - mColumnMax) / range : 0;
+        final float bottom = (range > 0) ? mHeight * (mMaxValue - mColumnMin) / range : mHeight;
+        // At least a pixel tall, so a steady value still shows
+        mCanvas.drawRect(slot, Math.min(top, mHeight - 1), slot + 1, Math.max(bottom, top + 1), mPaint);
+        mColumnDirty = false;
+    }
+
+    /**
+     * Draws the window up to {@code nowNanos}, on the clock of the samples, with its top left
+     * corner at {@code left}, {@code top}, in pixels.
+     */
+    public void draw(final Canvas canvas, final long nowNanos, final float left, final float top,
+                     final Paint paint) {
+        if (null == mBitmap || !mStarted) {
+            return;
+        }
+        advance(nowNanos);
+        if (mColumnDirty) {
+            drawColumn();
+        }
+        final int oldest = slotOf(mColumn + 1);
+        final int x = Math.round(left);
+        final int y = Math.round(top);
+        // Oldest columns first, then the ones that wrapped around
+        mSrc.set(oldest, 0, mWidth, mHeight);
+        mDst.set(x, y, x + mWidth - oldest, y + mHeight);
+        canvas.drawBitmap(mBitmap, mSrc, mDst, paint);
+        if (oldest > 0) {
+            mSrc.set(0, 0, oldest, mHeight);
+            mDst.set(x + mWidth - oldest, y, x + mWidth, y + mHeight);
+            canvas.drawBitmap(mBitmap, mSrc, mDst, paint);
+        }
+    }
+}
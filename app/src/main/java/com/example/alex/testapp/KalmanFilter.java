@@ -0,0 +1,56 @@
+package com.example.alex.testapp;
+
+/**
+ * One-dimensional Kalman filter with a random-walk model: the true value drifts with the
+ * given process noise (variance per second) and every sample is a reading with the given
+ * measurement noise (variance). Low process noise relative to measurement noise means heavy
+ * smoothing.
+ */
+public class KalmanFilter implements SignalFilter {
+
+    private final float mProcessNoise;
+    private final float mMeasurementNoise;
+    private boolean mPrimed;
+    private long mLastTimestamp;
+    private float mEstimate;
+    private float mVariance;
+
+    public KalmanFilter(final float processNoise, final float measurementNoise) {
+        if (processNoise < 0 || measurementNoise <= 0) {
+            throw new IllegalArgumentException("Invalid noise: " + processNoise + ", " + measurementNoise);
+        }
+        mProcessNoise = processNoise;
+        mMeasurementNoise = measurementNoise;
+    }
+
+    @Override
+    public float filter(final long timestampNanos, final float value) {
+        if (!mPrimed) {
+            mPrimed = true;
+            mEstimate = value;
+            mVariance = mMeasurementNoise;
+        } else {
+            // Predict
+            final float elapsed = Math.max(timestampNanos - mLastTimestamp, 0) / 1e9f;
+            mVariance += mProcessNoise * elapsed;
+            // Update
+            final float gain = mVariance / (mVariance + mMeasurementNoise);
+            mEstimate += gain * (value - mEstimate);
+            mVariance *= 1.0f - gain;
+        }
+        mLastTimestamp = timestampNanos;
+        return mEstimate;
+    }
+
+    @Override
+    public void reset() {
+        mPrimed = false;
+    }
+
+    /**
+     * Current error variance of the estimate.
+     */
+    public float getVariance() {
+        return mVariance;
+    }
+}
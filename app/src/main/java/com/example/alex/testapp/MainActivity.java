@@ -1,24 +1,23 @@
 package com.example.alex.testapp;
 
-import android.os.CountDownTimer;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 
-import java.util.Random;
-
 public class MainActivity extends AppCompatActivity implements View.OnClickListener {
     private GaugeView mGaugeView;
     private boolean isRunning = false;
     private Button btnStart;
-    private final Random RAND = new Random();
+    private final SpeedSource mSource = new SyntheticSpeedSource(1.0f, 10.0f, 60.0f, System.nanoTime());
+    private SampleSink mPipeline;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         findUI();
+        mPipeline = SpeedStages.clamp(mGaugeView.getRenderer().getScale(), mGaugeView);
         setListener();
         showStatus();
 
@@ -33,18 +32,11 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         btnStart    =(Button) findViewById(R.id.start_btn_ActivityMain);
     }
 
-    private final CountDownTimer mTimer = new CountDownTimer(30000, 1000) {
-
-        @Override
-        public void onTick(final long millisUntilFinished) {
-            mGaugeView.setTargetValue(RAND.nextInt(50) + 10);
-
-        }
-
-        @Override
-        public void onFinish() {}
-    };
-
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSource.stop();
+    }
 
 
     private void showStatus(){
@@ -60,9 +52,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     private void changeStatus(){
         isRunning = !isRunning;
         if (isRunning){
-            mTimer.start();
+            mSource.start(mPipeline);
         } else {
-            mTimer.cancel();
+            mSource.stop();
         }
         showStatus();
     }
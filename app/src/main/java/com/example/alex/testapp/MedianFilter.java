@@ -0,0 +1,59 @@
+package com.example.alex.testapp;
+
+import java.util.Arrays;
+
+/**
+ * Median of the last N samples, which rejects isolated spikes without smearing steps. Keeps
+ * the window both in arrival order and sorted, so a sample costs a binary search and a short
+ * array shift.
+ */
+public class MedianFilter implements SignalFilter {
+
+    private final float[] mWindow;
+    private final float[] mSorted;
+    private int mNext;
+    private int mSize;
+
+    public MedianFilter(final int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        mWindow = new float[window];
+        mSorted = new float[window];
+    }
+
+    @Override
+    public float filter(final long timestampNanos, final float value) {
+        if (mSize == mWindow.length) {
+            remove(mWindow[mNext]);
+        }
+        mWindow[mNext] = value;
+        mNext = (mNext + 1) % mWindow.length;
+        insert(value);
+
+        final int middle = mSize / 2;
+        return (0 != (mSize & 1)) ? mSorted[middle] : (mSorted[middle - 1] + mSorted[middle]) / 2;
+    }
+
+    private void remove(final float value) {
+        final int index = Arrays.binarySearch(mSorted, 0, mSize, value);
+        System.arraycopy(mSorted, index + 1, mSorted, index, mSize - index - 1);
+        mSize--;
+    }
+
+    private void insert(final float value) {
+        int index = Arrays.binarySearch(mSorted, 0, mSize, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        System.arraycopy(mSorted, index, mSorted, index + 1, mSize - index);
+        mSorted[index] = value;
+        mSize++;
+    }
+
+    @Override
+    public void reset() {
+        mNext = 0;
+        mSize = 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.alex.testapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free multi-producer, single-consumer ring buffer of samples.
+ * <p>
+ * Producers claim slots with a CAS on the tail; each slot carries a sequence number that
+ * tells the consumer when its contents are published and the producers when it is free.
+ */
+public class MpscSampleQueue implements SampleQueue {
+
+    private final long[] mTimestamps;
+    private final float[] mValues;
+    private final AtomicLongArray mSequences;
+    private final int mMask;
+
+    private final AtomicLong mTail = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+    // Consumer only
+    private long mHead;
+
+    public MpscSampleQueue(final int capacity) {
+        final int size = SampleQueues.ceilingPowerOfTwo(capacity);
+        mTimestamps = new long[size];
+        mValues = new float[size];
+        mSequences = new AtomicLongArray(size);
+        mMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(final long timestampNanos, final float value) {
+        long tail;
+        int index;
+        while (true) {
+            tail = mTail.get();
+            index = (int) tail & mMask;
+            final long sequence = mSequences.get(index);
+            if (sequence == tail) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    break;
+                }
+            } else if (sequence < tail) {
+                // The consumer has not freed this slot yet
+                mDropped.incrementAndGet();
+                return false;
+            }
+        }
+        mTimestamps[index] = timestampNanos;
+        mValues[index] = value;
+        mSequences.lazySet(index, tail + 1);
+        return true;
+    }
+
+    @Override
+    public int drainTo(final SampleSink sink) {
+        int count = 0;
+        while (true) {
+            final int index = (int) mHead & mMask;
+            if (mSequences.get(index) != mHead + 1) {
+                // Empty, or the next producer has claimed the slot but not published it yet
+                return count;
+            }
+            sink.onSample(mTimestamps[index], mValues[index]);
+            mSequences.lazySet(index, mHead + mMask + 1);
+            mHead++;
+            count++;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mSequences.get((int) mHead & mMask) != mHead + 1;
+    }
+
+    @Override
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.alex.testapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * The needle pre-rasterized at evenly spaced angles across the scale, so that a needle frame
+ * is two bitmap blits (needle and screw) instead of an anti-aliased path fill under a
+ * rotation.
+ * <p>
+ * Each frame only takes the bounding box of the rotated needle, and the boxes are packed in
+ * shelves, so a thin needle costs a fraction of square cells. The atlas is built for one size;
+ * the number of frames is reduced until it fits the byte budget. Optionally the two frames
+ * nearest the needle angle are cross-faded, which smooths the motion between steps at the
+ * cost of a third blit; a still needle between two frames then shows as two faint ones.
+ */
+public class NeedleAtlas {
+
+    // Keeps the atlas within the texture size limit of older GPUs
+    private static final int MAX_BITMAP_SIDE = 2048;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private Bitmap mBitmap;
+    private final float mPixelsPerUnit;
+    private final int mFrames;
+    private final float mStartAngle;
+    private final float mStep;
+    private final boolean mBlend;
+
+    // Per frame, with index mFrames holding the screw: source box and its offset from the pivot
+    private final int[] mLeft;
+    private final int[] mTop;
+    private final int[] mWidth;
+    private final int[] mHeight;
+    private final int[] mOffsetX;
+    private final int[] mOffsetY;
+
+    private final Rect mSrc = new Rect();
+    private final RectF mDst = new RectF();
+    private final Paint mFadeOutPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint mFadeInPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /**
+     * Returns null when not even two frames fit in {@code maxBytes}.
+     *
+     * @param paints the scene's paints by role
+     */
+    public static NeedleAtlas create(final GaugeScene scene, final Paint[] paints, final float pixelsPerUnit,
+                                     final int frames, final long maxBytes, final boolean blend) {
+        int count = frames;
+        while (count >= 2) {
+            final NeedleAtlas atlas = new NeedleAtlas(scene, pixelsPerUnit, count, blend);
+            if (atlas.pack(maxBytes / BYTES_PER_PIXEL)) {
+                atlas.rasterize(scene, paints);
+                return atlas;
+            }
+            count = count * 3 / 4;
+        }
+        return null;
+    }
+
+    private NeedleAtlas(final GaugeScene scene, final float pixelsPerUnit, final int frames, final boolean blend) {
+        mPixelsPerUnit = pixelsPerUnit;
+        mFrames = frames;
+        mBlend = blend;
+
+        final GaugeScale scale = scene.getScale();
+        mStartAngle = scale.getAngleForValue(scale.getStartValue());
+        mStep = (scale.getAngleForValue(scale.getEndValue()) - mStartAngle) / (frames - 1);
+
+        mLeft = new int[frames + 1];
+        mTop = new int[frames + 1];
+        mWidth = new int[frames + 1];
+        mHeight = new int[frames + 1];
+        mOffsetX = new int[frames + 1];
+        mOffsetY = new int[frames + 1];
+
+        final float[] outline = scene.getNeedleOutline();
+        for (int i = 0; i < frames; i++) {
+            final double radians = Math.toRadians(mStartAngle + i * mStep);
+            final float cos = (float) Math.cos(radians);
+            final float sin = (float) Math.sin(radians);
+            float minX = 0, minY = 0, maxX = 0, maxY = 0;
+            for (int p = 0; p < outline.length; p += 2) {
+                final float x = outline[p] - GaugeView.CENTER;
+                final float y = outline[p + 1] - GaugeView.CENTER;
+                final float rx = x * cos - y * sin;
+                final float ry = x * sin + y * cos;
+                minX = Math.min(minX, rx);
+                maxX = Math.max(maxX, rx);
+                minY = Math.min(minY, ry);
+                maxY = Math.max(maxY, ry);
+            }
+            setBox(i, minX, minY, maxX, maxY);
+        }
+        final float screw = GaugeView.NEEDLE_SCREW_RADIUS;
+        setBox(frames, -screw, -screw, screw, screw);
+    }
+
+    private void setBox(final int frame, final float minX, final float minY, final float maxX, final float maxY) {
+        // A pixel of slack on each side for anti-aliasing
+        mOffsetX[frame] = (int) Math.floor(minX * mPixelsPerUnit) - 1;
+        mOffsetY[frame] = (int) Math.floor(minY * mPixelsPerUnit) - 1;
+        mWidth[frame] = (int) Math.ceil(maxX * mPixelsPerUnit) + 1 - mOffsetX[frame];
+        mHeight[frame] = (int) Math.ceil(maxY * mPixelsPerUnit) + 1 - mOffsetY[frame];
+    }
+
+    // Set by pack(), used by rasterize()
+    private int mAtlasWidth;
+    private int mAtlasHeight;
+
+    /**
+     * Places the boxes in shelves of the widest box or more.
+     *
+     * @return false if the atlas would exceed {@code maxPixels}
+     */
+    private boolean pack(final long maxPixels) {
+        int width = 0;
+        for (int i = 0; i <= mFrames; i++) {
+            width = Math.max(width, mWidth[i]);
+        }
+        width = Math.min(Math.max(width, 256), MAX_BITMAP_SIDE);
+        int x = 0, y = 0, shelf = 0;
+        for (int i = 0; i <= mFrames; i++) {
+            if (mWidth[i] > width) {
+                return false;
+            }
+            if (x + mWidth[i] > width) {
+                x = 0;
+                y += shelf;
+                shelf = 0;
+            }
+            mLeft[i] = x;
+            mTop[i] = y;
+            x += mWidth[i];
+            shelf = Math.max(shelf, mHeight[i]);
+        }
+        mAtlasWidth = width;
+        mAtlasHeight = y + shelf;
+        return mAtlasHeight <= MAX_BITMAP_SIDE && (long) mAtlasWidth * mAtlasHeight <= maxPixels;
+    }
+
+    private void rasterize(final GaugeScene scene, final Paint[] paints) {
+        mBitmap = Bitmap.createBitmap(mAtlasWidth, mAtlasHeight, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(mBitmap);
+        final AndroidGaugeCanvas sceneCanvas = new AndroidGaugeCanvas(paints).setCanvas(canvas);
+        for (int i = 0; i <= mFrames; i++) {
+            canvas.save();
+            canvas.clipRect(mLeft[i], mTop[i], mLeft[i] + mWidth[i], mTop[i] + mHeight[i]);
+            // Put the pivot where the box expects it
+            canvas.translate(mLeft[i] - mOffsetX[i], mTop[i] - mOffsetY[i]);
+            canvas.scale(mPixelsPerUnit, mPixelsPerUnit);
+            canvas.translate(-GaugeView.CENTER, -GaugeView.CENTER);
+            if (i < mFrames) {
+                scene.drawNeedleBody(sceneCanvas, mStartAngle + i * mStep);
+            } else {
+                scene.drawScrew(sceneCanvas);
+            }
+            canvas.restore();
+        }
+    }
+
+    public boolean matches(final float pixelsPerUnit) {
+        return mPixelsPerUnit == pixelsPerUnit;
+    }
+
+    public int getFrameCount() {
+        return mFrames;
+    }
+
+    public int getByteCount() {
+        return mBitmap.getByteCount();
+    }
+
+    public void recycle() {
+        mBitmap.recycle();
+    }
+
+    /**
+     * Draws the needle at {@code angle} and the screw on a canvas set up for the unit square.
+     */
+    public void draw(final Canvas canvas, final float angle, final Paint paint) {
+        final float position = getPosition(angle);
+        if (mBlend) {
+            final int frame = (int) position;
+            final float fraction = position - frame;
+            if (fraction > 0 && frame + 1 < mFrames) {
+                // Weights that add up to the paint's own alpha
+                final int alpha = paint.getAlpha();
+                final int in = Math.round(alpha * fraction);
+                mFadeOutPaint.setAlpha(alpha - in);
+                mFadeInPaint.setAlpha(in);
+                drawFrame(canvas, frame, mFadeOutPaint);
+                drawFrame(canvas, frame + 1, mFadeInPaint);
+            } else {
+                drawFrame(canvas, frame, paint);
+            }
+        } else {
+            drawFrame(canvas, Math.round(position), paint);
+        }
+        drawFrame(canvas, mFrames, paint);
+    }
+
+    /**
+     * Writes the angles of the frames {@link #draw(Canvas, float, Paint)} blits for
+     * {@code angle}, which are up to a step away from it, so that a dirty region can cover
+     * the sprites rather than the exact needle.
+     *
+     * @param angles at least two long
+     * @return the number of angles written, 1 or 2
+     */
+    public int getDrawnAngles(final float angle, final float[] angles) {
+        final float position = getPosition(angle);
+        if (!mBlend) {
+            angles[0] = mStartAngle + Math.round(position) * mStep;
+            return 1;
+        }
+        final int frame = (int) position;
+        angles[0] = mStartAngle + frame * mStep;
+        if (position > frame && frame + 1 < mFrames) {
+            angles[1] = mStartAngle + (frame + 1) * mStep;
+            return 2;
+        }
+        return 1;
+    }
+
+    private float getPosition(final float angle) {
+        return Math.min(Math.max((angle - mStartAngle) / mStep, 0), mFrames - 1);
+    }
+
+    private void drawFrame(final Canvas canvas, final int frame, final Paint paint) {
+        mSrc.set(mLeft[frame], mTop[frame], mLeft[frame] + mWidth[frame], mTop[frame] + mHeight[frame]);
+        final float left = GaugeView.CENTER + mOffsetX[frame] / mPixelsPerUnit;
+        final float top = GaugeView.CENTER + mOffsetY[frame] / mPixelsPerUnit;
+        mDst.set(left, top, left + mWidth[frame] / mPixelsPerUnit, top + mHeight[frame] / mPixelsPerUnit);
+        canvas.drawBitmap(mBitmap, mSrc, mDst, paint);
+    }
+}
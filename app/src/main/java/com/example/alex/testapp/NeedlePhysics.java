@@ -0,0 +1,358 @@
+package com.example.alex.testapp;
+
+/**
+ * Needle dynamics for a batch of needles, kept free of any Android dependency.
+ * <p>
+ * State is stored as a structure of arrays so that a whole dashboard can be stepped
+ * in a single tight loop. Nothing is allocated after construction. Time is advanced with
+ * {@link #advanceNanos(long)}, or {@link #advance(float)}; how the needles follow their
+ * targets depends on the model:
+ * <ul>
+ * <li>{@link #MODEL_SPRING} integrates a spring in fixed {@link #STEP} increments, so the
+ * motion does not depend on the frame rate.</li>
+ * <li>{@link #MODEL_DAMPED} is a damped spring evaluated in closed form from the time since
+ * the target last changed, so any frame time, however long, lands exactly on the curve. That
+ * time is kept in whole nanoseconds, so it doesn't drift however many frames it spans.</li>
+ * <li>{@link #MODEL_LINEAR} moves at a constant rate, also in closed form.</li>
+ * </ul>
+ */
+public class NeedlePhysics {
+
+    public static final int MODEL_SPRING = 0;
+    public static final int MODEL_DAMPED = 1;
+    public static final int MODEL_LINEAR = 2;
+
+    public static final float STEP = 1.0f / 120.0f;
+    public static final float MAX_FRAME_TIME = 0.25f;
+    public static final float STIFFNESS = 5.0f;
+    public static final float THRESHOLD = 0.01f;
+
+    public static final float DAMPING_RATIO = 1.0f;
+    public static final float FREQUENCY = 8.0f;
+    public static final float MAX_RATE = 100.0f;
+
+    private final int mCount;
+
+    private final float[] mValues;
+    private final float[] mVelocities;
+    private final float[] mAccelerations;
+    private final float[] mTargets;
+    private final boolean[] mMoving;
+    // Closed-form models: offset from the target and velocity when it last changed, and when
+    private final float[] mStartOffsets;
+    private final float[] mStartVelocities;
+    private final long[] mStartNanos;
+
+    // The time the needles have been advanced to, from 0 at construction
+    private long mNowNanos;
+    private float mAccumulator;
+
+    private int mModel = MODEL_SPRING;
+    private float mDampingRatio = DAMPING_RATIO;
+    private float mFrequency = FREQUENCY;
+    private float mMaxRate = MAX_RATE;
+
+    public NeedlePhysics(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Needle count must be positive: " + count);
+        }
+        mCount = count;
+        mValues = new float[count];
+        mVelocities = new float[count];
+        mAccelerations = new float[count];
+        mTargets = new float[count];
+        mMoving = new boolean[count];
+        mStartOffsets = new float[count];
+        mStartVelocities = new float[count];
+        mStartNanos = new long[count];
+    }
+
+    /**
+     * Switches every needle to another model. Moving needles carry on from their current
+     * value and velocity.
+     *
+     * @param model one of the {@code MODEL_} constants
+     */
+    public void setModel(final int model) {
+        if (MODEL_SPRING != model && MODEL_DAMPED != model && MODEL_LINEAR != model) {
+            throw new IllegalArgumentException("Unknown needle model: " + model);
+        }
+        mModel = model;
+        for (int i = 0; i < mCount; i++) {
+            rebase(i);
+        }
+    }
+
+    public int getModel() {
+        return mModel;
+    }
+
+    /**
+     * For {@link #MODEL_DAMPED}: 1 is critically damped, less overshoots, more creeps in.
+     */
+    public void setDampingRatio(final float ratio) {
+        if (ratio <= 0) {
+            throw new IllegalArgumentException("Damping ratio must be positive: " + ratio);
+        }
+        mDampingRatio = ratio;
+        for (int i = 0; i < mCount; i++) {
+            rebase(i);
+        }
+    }
+
+    public float getDampingRatio() {
+        return mDampingRatio;
+    }
+
+    /**
+     * For {@link #MODEL_DAMPED}: the undamped natural frequency in radians per second.
+     */
+    public void setFrequency(final float frequency) {
+        if (frequency <= 0) {
+            throw new IllegalArgumentException("Frequency must be positive: " + frequency);
+        }
+        mFrequency = frequency;
+        for (int i = 0; i < mCount; i++) {
+            rebase(i);
+        }
+    }
+
+    public float getFrequency() {
+        return mFrequency;
+    }
+
+    /**
+     * For {@link #MODEL_LINEAR}: the needle speed in value units per second.
+     */
+    public void setMaxRate(final float rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + rate);
+        }
+        mMaxRate = rate;
+        for (int i = 0; i < mCount; i++) {
+            rebase(i);
+        }
+    }
+
+    public float getMaxRate() {
+        return mMaxRate;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public float getValue(final int needle) {
+        return mValues[needle];
+    }
+
+    public float getVelocity(final int needle) {
+        return mVelocities[needle];
+    }
+
+    public float getAcceleration(final int needle) {
+        return mAccelerations[needle];
+    }
+
+    public float getTarget(final int needle) {
+        return mTargets[needle];
+    }
+
+    public boolean isMoving(final int needle) {
+        return mMoving[needle];
+    }
+
+    public boolean isAnyMoving() {
+        for (int i = 0; i < mCount; i++) {
+            if (mMoving[i]) return true;
+        }
+        return false;
+    }
+
+    public void setTarget(final int needle, final float target) {
+        mTargets[needle] = target;
+        mMoving[needle] = Math.abs(mValues[needle] - target) > THRESHOLD;
+        rebase(needle);
+    }
+
+    /**
+     * Restores a needle, e.g. from saved instance state.
+     */
+    public void setState(final int needle, final float value, final float velocity, final float acceleration,
+                         final float target) {
+        mValues[needle] = value;
+        mVelocities[needle] = velocity;
+        mAccelerations[needle] = acceleration;
+        mTargets[needle] = target;
+        mMoving[needle] = Math.abs(value - target) > THRESHOLD;
+        rebase(needle);
+    }
+
+    /**
+     * Puts a needle at rest on its target, e.g. once it is close enough not to be seen moving.
+     */
+    public void settle(final int needle) {
+        mValues[needle] = mTargets[needle];
+        mVelocities[needle] = 0.0f;
+        mAccelerations[needle] = 0.0f;
+        mMoving[needle] = false;
+        rebase(needle);
+    }
+
+    /**
+     * Starts a new closed-form segment from the needle's current value and velocity.
+     */
+    private void rebase(final int needle) {
+        mStartOffsets[needle] = mValues[needle] - mTargets[needle];
+        mStartVelocities[needle] = mVelocities[needle];
+        mStartNanos[needle] = mNowNanos;
+    }
+
+    /**
+     * Same as {@link #advanceNanos(long)}, for a time in seconds.
+     */
+    public boolean advance(final float seconds) {
+        final float dt = Math.max(seconds, 0.0f);
+        return advance(Math.round(dt * 1e9), dt);
+    }
+
+    /**
+     * Adds elapsed time. The spring model runs as many fixed steps as it covers, with long
+     * pauses clamped to {@link #MAX_FRAME_TIME} so a stalled frame cannot cause a burst of
+     * steps; the closed-form models simply evaluate their curve at the new time.
+     *
+     * @return true if any needle is still moving
+     */
+    public boolean advanceNanos(final long nanos) {
+        return advanceTo(mNowNanos + Math.max(nanos, 0));
+    }
+
+    /**
+     * Advances to a time on the clock of {@link #getTimeNanos()}; earlier times are ignored.
+     * The closed-form models evaluate each needle at the time since its segment started, so
+     * the cost doesn't depend on how much time passed.
+     *
+     * @return true if any needle is still moving
+     */
+    public boolean advanceTo(final long timeNanos) {
+        final long elapsed = Math.max(timeNanos - mNowNanos, 0);
+        return advance(elapsed, elapsed / 1e9f);
+    }
+
+    /**
+     * @param seconds the same time as {@code nanos}, as given, so that the spring model steps
+     *                alike whichever unit the caller counts in
+     */
+    private boolean advance(final long nanos, final float seconds) {
+        mNowNanos += nanos;
+        if (MODEL_SPRING != mModel) {
+            for (int i = 0; i < mCount; i++) {
+                if (mMoving[i]) {
+                    evaluate(i, (mNowNanos - mStartNanos[i]) / 1e9f);
+                }
+            }
+            return isAnyMoving();
+        }
+        mAccumulator += Math.min(seconds, MAX_FRAME_TIME);
+        while (mAccumulator >= STEP) {
+            step();
+            mAccumulator -= STEP;
+        }
+        return isAnyMoving();
+    }
+
+    /**
+     * @return the time the needles have been advanced to, in nanoseconds since construction
+     */
+    public long getTimeNanos() {
+        return mNowNanos;
+    }
+
+    /**
+     * Runs a single fixed step for every needle.
+     */
+    public void step() {
+        final float[] values = mValues;
+        final float[] velocities = mVelocities;
+        final float[] accelerations = mAccelerations;
+        final float[] targets = mTargets;
+        final boolean[] moving = mMoving;
+        for (int i = 0; i < mCount; i++) {
+            if (!moving[i]) continue;
+
+            final float direction = Math.signum(velocities[i]);
+            accelerations[i] = STIFFNESS * (targets[i] - values[i]);
+            values[i] += velocities[i] * STEP;
+            velocities[i] += accelerations[i] * STEP;
+
+            // Settle once the needle reaches or passes the target in its direction of travel
+            final float remaining = targets[i] - values[i];
+            if (Math.abs(remaining) <= THRESHOLD || (direction != 0.0f && remaining * direction < 0.0f)) {
+                values[i] = targets[i];
+                velocities[i] = 0.0f;
+                accelerations[i] = 0.0f;
+                moving[i] = false;
+            }
+        }
+    }
+
+    /**
+     * Sets value, velocity and acceleration of a needle from its closed-form curve at
+     * {@code t} seconds into its segment, and settles it once it is close enough and slow enough.
+     */
+    private void evaluate(final int i, final float t) {
+        final float x0 = mStartOffsets[i];
+        final float v0 = mStartVelocities[i];
+        float x;
+        float v;
+        float a;
+        if (MODEL_LINEAR == mModel) {
+            final float distance = Math.abs(x0);
+            final float travelled = Math.min(mMaxRate * t, distance);
+            x = Math.signum(x0) * (distance - travelled);
+            v = (travelled < distance) ? -Math.signum(x0) * mMaxRate : 0.0f;
+            a = 0.0f;
+        } else {
+            final float w = mFrequency;
+            final float zeta = mDampingRatio;
+            if (Math.abs(zeta - 1.0f) < 1e-4f) {
+                // Critically damped
+                final float e = (float) Math.exp(-w * t);
+                final float b = v0 + w * x0;
+                x = (x0 + b * t) * e;
+                v = (v0 - w * t * b) * e;
+            } else if (zeta < 1.0f) {
+                final float wd = w * (float) Math.sqrt(1.0f - zeta * zeta);
+                final float decay = zeta * w;
+                final float e = (float) Math.exp(-decay * t);
+                final float cos = (float) Math.cos(wd * t);
+                final float sin = (float) Math.sin(wd * t);
+                final float b = (v0 + decay * x0) / wd;
+                x = e * (x0 * cos + b * sin);
+                v = e * (v0 * cos - (decay * b + wd * x0) * sin);
+            } else {
+                final float root = w * (float) Math.sqrt(zeta * zeta - 1.0f);
+                final float r1 = -zeta * w + root;
+                final float r2 = -zeta * w - root;
+                final float c2 = (v0 - r1 * x0) / (r2 - r1);
+                final float c1 = x0 - c2;
+                final float e1 = (float) Math.exp(r1 * t);
+                final float e2 = (float) Math.exp(r2 * t);
+                x = c1 * e1 + c2 * e2;
+                v = r1 * c1 * e1 + r2 * c2 * e2;
+            }
+            a = -w * w * x - 2.0f * zeta * w * v;
+        }
+
+        if (Math.abs(x) <= THRESHOLD && Math.abs(v) <= THRESHOLD * mFrequency) {
+            mValues[i] = mTargets[i];
+            mVelocities[i] = 0.0f;
+            mAccelerations[i] = 0.0f;
+            mMoving[i] = false;
+        } else {
+            mValues[i] = mTargets[i] + x;
+            mVelocities[i] = v;
+            mAccelerations[i] = a;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.alex.testapp;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Static layers rendered at build time by the {@code prerenderGauges} task and packaged as
+ * assets. A layer is named after the style hash and the side of the square it was drawn
+ * into, i.e. {@code min(width, height)}, so decoding replaces drawing for the common sizes.
+ * The index records the full {@link StaticLayerSpec} of every layer, so a style whose hash
+ * merely collides is not given another style's layer. Anything without an asset is drawn
+ * as before.
+ */
+public final class PrerenderedLayers {
+
+    private static final String TAG = "PrerenderedLayers";
+
+    public static final String ASSET_DIR = "gauges";
+
+    // Asset name to the StaticLayerSpec description of the layer
+    private static Properties sIndex;
+
+    private PrerenderedLayers() {
+    }
+
+    public static boolean has(final Context context, final StaticLayerSpec layer, final int size) {
+        return layer.toString().equals(getIndex(context.getAssets()).getProperty(layer.getAssetName(size)));
+    }
+
+    private static synchronized Properties getIndex(final AssetManager assets) {
+        if (null == sIndex) {
+            sIndex = new Properties();
+            InputStream in = null;
+            try {
+                in = assets.open(ASSET_DIR + "/" + StaticLayerSpec.ASSET_INDEX);
+                sIndex.load(in);
+            } catch (IOException e) {
+                // No layers were packaged
+                sIndex.clear();
+            } finally {
+                if (null != in) {
+                    try {
+                        in.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+        return sIndex;
+    }
+
+    /**
+     * A renderer that decodes the packaged layer, falling back to {@code fallback} if the
+     * asset can't be decoded. When the layer is as large as the cached bitmap, i.e. for a
+     * square view, the decoded bitmap itself is cached; otherwise it is centered, like
+     * {@link GaugeRenderer#fitUnitSquare} centers the drawing, on a blank one.
+     */
+    public static BackgroundCache.Renderer renderer(final Context context, final StaticLayerSpec layer,
+                                                    final int size, final BackgroundCache.Renderer fallback) {
+        final AssetManager assets = context.getApplicationContext().getAssets();
+        final String path = ASSET_DIR + "/" + layer.getAssetName(size);
+        return new BackgroundCache.BitmapRenderer() {
+            @Override
+            public Bitmap createBitmap(final int width, final int height) {
+                // Otherwise, or if decoding fails, render() centers or falls back
+                return (width == size && height == size) ? decode(assets, path, size) : null;
+            }
+
+            @Override
+            public void render(final Canvas canvas, final int width, final int height) {
+                final Bitmap bitmap = decode(assets, path, size);
+                if (null == bitmap) {
+                    fallback.render(canvas, width, height);
+                    return;
+                }
+                canvas.drawBitmap(bitmap, Math.round((width - size) / 2.0f), Math.round((height - size) / 2.0f), null);
+                bitmap.recycle();
+            }
+        };
+    }
+
+    /**
+     * @return the layer, or null if it can't be decoded or isn't {@code size} square
+     */
+    private static Bitmap decode(final AssetManager assets, final String path, final int size) {
+        InputStream in = null;
+        try {
+            in = assets.open(path);
+            final BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inScaled = false;
+            final Bitmap bitmap = BitmapFactory.decodeStream(in, null, options);
+            if (null != bitmap && (bitmap.getWidth() != size || bitmap.getHeight() != size)) {
+                bitmap.recycle();
+                return null;
+            }
+            return bitmap;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not decode " + path, e);
+            return null;
+        } finally {
+            if (null != in) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.alex.testapp;
+
+/**
+ * Paces replayed samples by their recorded timestamps, shared by the replay sources.
+ * <p>
+ * The first sample is due right away. Later ones are due after their recorded offset from
+ * the first, divided by the speed factor; a factor of 0 does not sleep at all. Either way
+ * the sink gets timestamps on the {@link System#nanoTime()} time base that keep the
+ * recorded spacing (scaled by the speed factor), so that filters and statistics downstream
+ * see the trace as it was recorded.
+ */
+final class ReplayPacer {
+
+    private final float mSpeed;
+    private long mStart;
+    private long mFirst;
+    private boolean mStarted;
+
+    /**
+     * @param speed 1 for real time, N for N times faster, or 0 for as fast as possible
+     */
+    ReplayPacer(final float speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative: " + speed);
+        }
+        mSpeed = speed;
+    }
+
+    /**
+     * Waits until the sample recorded at {@code traceNanos} is due.
+     *
+     * @return the timestamp to hand to the sink
+     */
+    long pace(final long traceNanos) throws InterruptedException {
+        final long due = getDue(traceNanos);
+        if (mSpeed > 0) {
+            final long wait = due - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return when the sample recorded at {@code traceNanos} is due, starting the clock at
+     * the first call
+     */
+    long getDue(final long traceNanos) {
+        if (!mStarted) {
+            mStarted = true;
+            mStart = System.nanoTime();
+            mFirst = traceNanos;
+        }
+        final long offset = traceNanos - mFirst;
+        // In double: a float keeps 24 bits, i.e. milliseconds once the offset is an hour
+        return mStart + ((mSpeed > 0) ? (long) (offset / (double) mSpeed) : offset);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.alex.testapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Replays a text trace with one {@code <millis> <value>} pair per line, separated by white
+ * space or a comma. Blank lines and lines starting with {@code #} are skipped.
+ * <p>
+ * Samples are paced by their recorded timestamps, scaled by the speed factor; a factor of 0
+ * replays as fast as the sink accepts them. See {@link ReplayPacer} for the timestamps handed
+ * to the sink.
+ */
+public class ReplaySpeedSource extends ThreadedSpeedSource {
+
+    public static final float AS_FAST_AS_POSSIBLE = 0.0f;
+
+    private final BufferedReader mReader;
+    private final ReplayPacer mPacer;
+    private volatile IOException mError;
+
+    public ReplaySpeedSource(final Reader reader, final float speed) {
+        super("ReplaySpeedSource");
+        mPacer = new ReplayPacer(speed);
+        mReader = new BufferedReader(reader);
+    }
+
+    /**
+     * @return the error that ended the replay early, if any
+     */
+    public IOException getError() {
+        return mError;
+    }
+
+    @Override
+    protected void produce(final SampleSink sink) throws InterruptedException {
+        try {
+            String line;
+            while (isRunning() && null != (line = mReader.readLine())) {
+                line = line.trim();
+                if (line.isEmpty() || '#' == line.charAt(0)) {
+                    continue;
+                }
+                final int split = indexOfSeparator(line);
+                if (split < 0) {
+                    throw new IOException("Malformed trace line: " + line);
+                }
+                final long millis;
+                final float value;
+                try {
+                    millis = Long.parseLong(line.substring(0, split));
+                    value = Float.parseFloat(line.substring(split + 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed trace line: " + line);
+                }
+                sink.onSample(mPacer.pace(millis * 1000000L), value);
+            }
+        } catch (IOException e) {
+            mError = e;
+        } finally {
+            try {
+                mReader.close();
+            } catch (IOException e) {
+                // Nothing left to read anyway
+            }
+        }
+    }
+
+    private static int indexOfSeparator(final String line) {
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (',' == c || Character.isWhitespace(c)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
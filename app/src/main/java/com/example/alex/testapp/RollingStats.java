@@ -0,0 +1,192 @@
+package com.example.alex.testapp;
+
+/**
+ * Statistics over a stream of timestamped values: minimum, maximum and average over a
+ * sliding time window, and over the whole session since the last {@link #reset()}.
+ * <p>
+ * Every sample costs O(1) amortized. The window keeps its samples in primitive ring
+ * buffers, with a running sum for the average and monotonic deques of sample numbers for
+ * the minimum and maximum, so the memory is fixed at construction. When more than
+ * {@code capacity} samples fall into the window, the oldest ones drop out early.
+ * Not thread safe.
+ */
+public class RollingStats {
+
+    private final int mCapacity;
+    private final long mWindowNanos;
+
+    // Samples are numbered from 0; sample n lives at n % capacity
+    private final long[] mTimes;
+    private final float[] mValues;
+    private long mHead;
+    private long mTail;
+    private double mSum;
+
+    // Sample numbers, increasing in value (min) or decreasing in value (max) from front to back
+    private final long[] mMinDeque;
+    private long mMinFront;
+    private long mMinBack;
+    private final long[] mMaxDeque;
+    private long mMaxFront;
+    private long mMaxBack;
+
+    private long mSessionCount;
+    private float mSessionMin;
+    private float mSessionMax;
+    private double mSessionSum;
+
+    public RollingStats(final int capacity, final long windowNanos) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("Window must be positive: " + windowNanos);
+        }
+        mCapacity = capacity;
+        mWindowNanos = windowNanos;
+        mTimes = new long[capacity];
+        mValues = new float[capacity];
+        mMinDeque = new long[capacity];
+        mMaxDeque = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public long getWindowNanos() {
+        return mWindowNanos;
+    }
+
+    public void add(final long timestampNanos, final float value) {
+        if (mHead - mTail == mCapacity) {
+            evictOldest();
+        }
+        expire(timestampNanos);
+
+        final long n = mHead++;
+        final int slot = (int) (n % mCapacity);
+        mTimes[slot] = timestampNanos;
+        mValues[slot] = value;
+        mSum += value;
+
+        while (mMinBack > mMinFront && valueOf(mMinDeque[(int) ((mMinBack - 1) % mCapacity)]) >= value) {
+            mMinBack--;
+        }
+        mMinDeque[(int) (mMinBack++ % mCapacity)] = n;
+        while (mMaxBack > mMaxFront && valueOf(mMaxDeque[(int) ((mMaxBack - 1) % mCapacity)]) <= value) {
+            mMaxBack--;
+        }
+        mMaxDeque[(int) (mMaxBack++ % mCapacity)] = n;
+
+        if (0 == mSessionCount) {
+            mSessionMin = value;
+            mSessionMax = value;
+        } else {
+            mSessionMin = Math.min(mSessionMin, value);
+            mSessionMax = Math.max(mSessionMax, value);
+        }
+        mSessionSum += value;
+        mSessionCount++;
+    }
+
+    /**
+     * Drops the samples that are older than the window as of {@code nowNanos}. Adding a
+     * sample does this already; call it to let the window age while no samples arrive.
+     */
+    public void expire(final long nowNanos) {
+        while (mHead > mTail && nowNanos - mTimes[(int) (mTail % mCapacity)] > mWindowNanos) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * @return the time at which the oldest sample drops out of the window, i.e. when the
+     * window next changes without new samples, or -1 while it is empty
+     */
+    public long getNextExpiryNanos() {
+        return (mHead > mTail) ? mTimes[(int) (mTail % mCapacity)] + mWindowNanos + 1 : -1;
+    }
+
+    private void evictOldest() {
+        final long n = mTail++;
+        mSum -= mValues[(int) (n % mCapacity)];
+        if (mMinBack > mMinFront && mMinDeque[(int) (mMinFront % mCapacity)] == n) {
+            mMinFront++;
+        }
+        if (mMaxBack > mMaxFront && mMaxDeque[(int) (mMaxFront % mCapacity)] == n) {
+            mMaxFront++;
+        }
+        if (mHead == mTail) {
+            // Keeps the running sum from drifting over a long session
+            mSum = 0;
+        }
+    }
+
+    private float valueOf(final long n) {
+        return mValues[(int) (n % mCapacity)];
+    }
+
+    public void reset() {
+        mHead = mTail = 0;
+        mSum = 0;
+        mMinFront = mMinBack = 0;
+        mMaxFront = mMaxBack = 0;
+        mSessionCount = 0;
+        mSessionSum = 0;
+    }
+
+    /**
+     * @return the number of samples in the window
+     */
+    public int getWindowCount() {
+        return (int) (mHead - mTail);
+    }
+
+    /**
+     * @return the smallest value in the window, NaN while it is empty
+     */
+    public float getWindowMin() {
+        return (mMinBack > mMinFront) ? valueOf(mMinDeque[(int) (mMinFront % mCapacity)]) : Float.NaN;
+    }
+
+    /**
+     * @return the largest value in the window, i.e. the held peak, NaN while it is empty
+     */
+    public float getWindowMax() {
+        return (mMaxBack > mMaxFront) ? valueOf(mMaxDeque[(int) (mMaxFront % mCapacity)]) : Float.NaN;
+    }
+
+    /**
+     * @return the mean of the window, NaN while it is empty
+     */
+    public float getWindowAverage() {
+        final long count = mHead - mTail;
+        return (count > 0) ? (float) (mSum / count) : Float.NaN;
+    }
+
+    public long getSessionCount() {
+        return mSessionCount;
+    }
+
+    /**
+     * @return the smallest value since the last reset, NaN before the first sample
+     */
+    public float getSessionMin() {
+        return (mSessionCount > 0) ? mSessionMin : Float.NaN;
+    }
+
+    /**
+     * @return the largest value since the last reset, NaN before the first sample
+     */
+    public float getSessionMax() {
+        return (mSessionCount > 0) ? mSessionMax : Float.NaN;
+    }
+
+    /**
+     * @return the mean since the last reset, NaN before the first sample
+     */
+    public float getSessionAverage() {
+        return (mSessionCount > 0) ? (float) (mSessionSum / mSessionCount) : Float.NaN;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.alex.testapp;
+
+/**
+ * Bounded, non-blocking hand-off of samples from producer threads to a single consumer,
+ * typically the UI thread draining once per frame. Implementations never allocate after
+ * construction.
+ */
+public interface SampleQueue {
+
+    /**
+     * Adds a sample without blocking.
+     *
+     * @return false if the queue was full and the sample was dropped
+     */
+    boolean offer(long timestampNanos, float value);
+
+    /**
+     * Hands every queued sample to {@code sink} in arrival order. Consumer thread only.
+     *
+     * @return the number of samples drained
+     */
+    int drainTo(SampleSink sink);
+
+    /**
+     * Consumer thread only.
+     */
+    boolean isEmpty();
+
+    int getCapacity();
+
+    long getDroppedCount();
+}
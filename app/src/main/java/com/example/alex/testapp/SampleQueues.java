@@ -0,0 +1,16 @@
+package com.example.alex.testapp;
+
+final class SampleQueues {
+
+    static final int MAX_CAPACITY = 1 << 20;
+
+    private SampleQueues() {
+    }
+
+    static int ceilingPowerOfTwo(final int capacity) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be in 1.." + MAX_CAPACITY + ": " + capacity);
+        }
+        return (1 == capacity) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.alex.testapp;
+
+/**
+ * Coalesces the samples that arrived during one frame into a single value.
+ */
+public class SampleReducer implements SampleSink {
+
+    public static final int LATEST = 0;
+    public static final int MEAN = 1;
+    public static final int MIN = 2;
+    public static final int MAX = 3;
+
+    private int mMode;
+    private int mCount;
+    private long mTimestamp;
+    private float mValue;
+    private double mSum;
+
+    public SampleReducer(final int mode) {
+        setMode(mode);
+    }
+
+    public void setMode(final int mode) {
+        if (mode < LATEST || mode > MAX) {
+            throw new IllegalArgumentException("Unknown reduction: " + mode);
+        }
+        mMode = mode;
+        reset();
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    public void reset() {
+        mCount = 0;
+        mSum = 0;
+    }
+
+    @Override
+    public void onSample(final long timestampNanos, final float value) {
+        if (0 == mCount) {
+            mValue = value;
+        } else if (MIN == mMode) {
+            mValue = Math.min(mValue, value);
+        } else if (MAX == mMode) {
+            mValue = Math.max(mValue, value);
+        } else if (LATEST == mMode) {
+            mValue = value;
+        }
+        mSum += value;
+        mTimestamp = timestampNanos;
+        mCount++;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Timestamp of the last sample.
+     */
+    public long getTimestamp() {
+        return mTimestamp;
+    }
+
+    public float getValue() {
+        return (MEAN == mMode && mCount > 0) ? (float) (mSum / mCount) : mValue;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.alex.testapp;
+
+/**
+ * Receives timestamped samples, e.g. speed readings from a sensor.
+ */
+public interface SampleSink {
+
+    void onSample(long timestampNanos, float value);
+}
@@ -0,0 +1,19 @@
+package com.example.alex.testapp;
+
+/**
+ * Conditions a stream of raw samples before they become the needle's target. Implementations
+ * keep their state in primitives and do not allocate per sample; an instance belongs to a
+ * single thread.
+ */
+public interface SignalFilter {
+
+    /**
+     * @return the filtered value for a sample taken at {@code timestampNanos}
+     */
+    float filter(long timestampNanos, float value);
+
+    /**
+     * Forgets the history, so the next sample passes through unchanged.
+     */
+    void reset();
+}
@@ -0,0 +1,81 @@
+package com.example.alex.testapp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Reads speed values, one per line, from a TCP socket; a local stand-in for a vehicle bus.
+ * Samples are timestamped on arrival. The connection is closed when the source stops or the
+ * peer hangs up.
+ */
+public class SocketSpeedSource extends ThreadedSpeedSource {
+
+    public static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+    private final String mHost;
+    private final int mPort;
+    private volatile Socket mSocket;
+    private volatile IOException mError;
+
+    public SocketSpeedSource(final String host, final int port) {
+        super("SocketSpeedSource");
+        mHost = host;
+        mPort = port;
+    }
+
+    /**
+     * @return the error that ended the connection, if any
+     */
+    public IOException getError() {
+        return mError;
+    }
+
+    @Override
+    protected void produce(final SampleSink sink) {
+        final Socket socket = new Socket();
+        mSocket = socket;
+        try {
+            socket.connect(new InetSocketAddress(mHost, mPort), CONNECT_TIMEOUT_MILLIS);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            String line;
+            while (isRunning() && null != (line = reader.readLine())) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    sink.onSample(System.nanoTime(), Float.parseFloat(line));
+                } catch (NumberFormatException e) {
+                    // Skip garbage rather than dropping the connection
+                }
+            }
+        } catch (IOException e) {
+            if (isRunning()) {
+                mError = e;
+            }
+        } finally {
+            closeQuietly(socket);
+            mSocket = null;
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        // Unblocks a pending connect or read
+        final Socket socket = mSocket;
+        if (null != socket) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(final Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
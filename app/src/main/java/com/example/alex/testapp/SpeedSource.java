@@ -0,0 +1,22 @@
+package com.example.alex.testapp;
+
+/**
+ * A producer of speed samples, e.g. a synthetic generator, a recorded trace or a vehicle bus.
+ * <p>
+ * Samples are pushed into a {@link SampleSink} on the source's own thread, usually through a
+ * chain of {@link SpeedStages} into a gauge's sample queue.
+ */
+public interface SpeedSource {
+
+    /**
+     * Starts producing into {@code sink}. Does nothing if the source is already running.
+     */
+    void start(SampleSink sink);
+
+    /**
+     * Stops producing. No sample reaches the sink once this returns.
+     */
+    void stop();
+
+    boolean isRunning();
+}
@@ -0,0 +1,104 @@
+package com.example.alex.testapp;
+
+/**
+ * Composable pipeline stages between a {@link SpeedSource} and the gauges it feeds. Every
+ * stage is a {@link SampleSink} that forwards to the next one, e.g.
+ * <pre>
+ * source.start(SpeedStages.convert(SpeedStages.KMH_PER_MPH, 0,
+ *         SpeedStages.clamp(0, 200, gaugeView)));
+ * </pre>
+ * Stages keep their state in primitives and do not allocate per sample. A stage instance
+ * belongs to a single producer thread.
+ */
+public final class SpeedStages {
+
+    public static final float KMH_PER_MPH = 1.609344f;
+    public static final float MPH_PER_KMH = 1.0f / KMH_PER_MPH;
+    public static final float KMH_PER_MPS = 3.6f;
+
+    private SpeedStages() {
+    }
+
+    /**
+     * Maps every value to {@code value * factor + offset}.
+     */
+    public static SampleSink convert(final float factor, final float offset, final SampleSink next) {
+        return new SampleSink() {
+            @Override
+            public void onSample(final long timestampNanos, final float value) {
+                next.onSample(timestampNanos, value * factor + offset);
+            }
+        };
+    }
+
+    /**
+     * Limits values to {@code [min, max]}, e.g. a gauge's scale.
+     */
+    public static SampleSink clamp(final float min, final float max, final SampleSink next) {
+        if (min > max) {
+            throw new IllegalArgumentException("Empty range: " + min + " > " + max);
+        }
+        return new SampleSink() {
+            @Override
+            public void onSample(final long timestampNanos, final float value) {
+                next.onSample(timestampNanos, Math.min(Math.max(value, min), max));
+            }
+        };
+    }
+
+    /**
+     * Clamps to the scale of {@code scale}.
+     */
+    public static SampleSink clamp(final GaugeScale scale, final SampleSink next) {
+        return clamp(Math.min(scale.getStartValue(), scale.getEndValue()),
+                Math.max(scale.getStartValue(), scale.getEndValue()), next);
+    }
+
+    /**
+     * Forwards at most one sample per {@code intervalNanos}; samples arriving sooner after the
+     * last forwarded one are dropped.
+     */
+    public static SampleSink decimate(final long intervalNanos, final SampleSink next) {
+        return new SampleSink() {
+            private boolean mStarted;
+            private long mLast;
+
+            @Override
+            public void onSample(final long timestampNanos, final float value) {
+                if (mStarted && timestampNanos - mLast < intervalNanos) {
+                    return;
+                }
+                mStarted = true;
+                mLast = timestampNanos;
+                next.onSample(timestampNanos, value);
+            }
+        };
+    }
+
+    /**
+     * Runs every sample through {@code filter}.
+     */
+    public static SampleSink filter(final SignalFilter filter, final SampleSink next) {
+        return new SampleSink() {
+            @Override
+            public void onSample(final long timestampNanos, final float value) {
+                next.onSample(timestampNanos, filter.filter(timestampNanos, value));
+            }
+        };
+    }
+
+    /**
+     * Hands every sample to each of {@code sinks} in turn.
+     */
+    public static SampleSink fanOut(final SampleSink... sinks) {
+        final SampleSink[] targets = sinks.clone();
+        return new SampleSink() {
+            @Override
+            public void onSample(final long timestampNanos, final float value) {
+                for (SampleSink sink : targets) {
+                    sink.onSample(timestampNanos, value);
+                }
+            }
+        };
+    }
+}
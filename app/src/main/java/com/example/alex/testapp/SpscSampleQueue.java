@@ -0,0 +1,79 @@
+package com.example.alex.testapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer, single-consumer ring buffer of samples.
+ * <p>
+ * Only one thread may call {@link #offer(long, float)}; use {@link MpscSampleQueue} when
+ * several sources feed the same gauge.
+ */
+public class SpscSampleQueue implements SampleQueue {
+
+    private final long[] mTimestamps;
+    private final float[] mValues;
+    private final int mMask;
+
+    // Written by the consumer, read by the producer
+    private final AtomicLong mHead = new AtomicLong();
+    // Written by the producer, read by the consumer
+    private final AtomicLong mTail = new AtomicLong();
+
+    private long mCachedHead;
+    private volatile long mDropped;
+
+    public SpscSampleQueue(final int capacity) {
+        final int size = SampleQueues.ceilingPowerOfTwo(capacity);
+        mTimestamps = new long[size];
+        mValues = new float[size];
+        mMask = size - 1;
+    }
+
+    @Override
+    public boolean offer(final long timestampNanos, final float value) {
+        final long tail = mTail.get();
+        if (tail - mCachedHead > mMask) {
+            mCachedHead = mHead.get();
+            if (tail - mCachedHead > mMask) {
+                mDropped++;
+                return false;
+            }
+        }
+        final int index = (int) tail & mMask;
+        mTimestamps[index] = timestampNanos;
+        mValues[index] = value;
+        // Publishes the slot to the consumer
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    @Override
+    public int drainTo(final SampleSink sink) {
+        long head = mHead.get();
+        final long tail = mTail.get();
+        final int count = (int) (tail - head);
+        while (head < tail) {
+            final int index = (int) head & mMask;
+            sink.onSample(mTimestamps[index], mValues[index]);
+            head++;
+        }
+        // Releases the slots back to the producer
+        mHead.lazySet(head);
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+
+    @Override
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return mDropped;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.alex.testapp;
+
+import java.util.Arrays;
+
+/**
+ * Everything that ends up in a gauge's static layer, i.e. the identity under which the layer
+ * is cached and shared. Styles that differ only in the needle or the text share one layer.
+ * <p>
+ * The hash is used to spread keys and to name layers rendered at build time; equality
+ * compares the values themselves, so styles whose hashes collide never share a layer.
+ * Free of Android dependencies.
+ */
+public final class StaticLayerSpec {
+
+    // Lists the layers rendered at build time, by asset name
+    public static final String ASSET_INDEX = "layers.properties";
+
+    private final boolean mShowOuterBorder;
+    private final boolean mShowRanges;
+    private final float mOuterBorderWidth;
+    private final float mScalePosition;
+    private final float mScaleStartValue;
+    private final float mScaleEndValue;
+    private final float mScaleStartAngle;
+    private final int mDivisions;
+    private final int mSubdivisions;
+    private final float[] mRangeValues;
+    private final int[] mRangeColors;
+    private final int mTextShadowColor;
+    private final int mHash;
+
+    /**
+     * @param rangeValues kept, not copied; null without ranges
+     * @param rangeColors kept, not copied; null without ranges
+     */
+    public StaticLayerSpec(final boolean showOuterBorder, final boolean showRanges, final float outerBorderWidth,
+                           final float scalePosition, final float scaleStartValue, final float scaleEndValue,
+                           final float scaleStartAngle, final int divisions, final int subdivisions,
+                           final float[] rangeValues, final int[] rangeColors, final int textShadowColor) {
+        mShowOuterBorder = showOuterBorder;
+        mShowRanges = showRanges;
+        mOuterBorderWidth = outerBorderWidth;
+        mScalePosition = scalePosition;
+        mScaleStartValue = scaleStartValue;
+        mScaleEndValue = scaleEndValue;
+        mScaleStartAngle = scaleStartAngle;
+        mDivisions = divisions;
+        mSubdivisions = subdivisions;
+        mRangeValues = rangeValues;
+        mRangeColors = rangeColors;
+        mTextShadowColor = textShadowColor;
+
+        int hash = showOuterBorder ? 1 : 0;
+        hash = 31 * hash + (showRanges ? 1 : 0);
+        hash = 31 * hash + Float.floatToIntBits(outerBorderWidth);
+        hash = 31 * hash + Float.floatToIntBits(scalePosition);
+        hash = 31 * hash + Float.floatToIntBits(scaleStartValue);
+        hash = 31 * hash + Float.floatToIntBits(scaleEndValue);
+        hash = 31 * hash + Float.floatToIntBits(scaleStartAngle);
+        hash = 31 * hash + divisions;
+        hash = 31 * hash + subdivisions;
+        hash = 31 * hash + Arrays.hashCode(rangeValues);
+        hash = 31 * hash + Arrays.hashCode(rangeColors);
+        hash = 31 * hash + textShadowColor;
+        mHash = hash;
+    }
+
+    /**
+     * The name under which the layer is packaged when rendered at build time into a square
+     * of side {@code size}.
+     */
+    public String getAssetName(final int size) {
+        return Integer.toHexString(mHash) + "_" + size + ".png";
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StaticLayerSpec)) return false;
+        final StaticLayerSpec s = (StaticLayerSpec) o;
+        return mHash == s.mHash
+                && mShowOuterBorder == s.mShowOuterBorder
+                && mShowRanges == s.mShowRanges
+                && Float.compare(mOuterBorderWidth, s.mOuterBorderWidth) == 0
+                && Float.compare(mScalePosition, s.mScalePosition) == 0
+                && Float.compare(mScaleStartValue, s.mScaleStartValue) == 0
+                && Float.compare(mScaleEndValue, s.mScaleEndValue) == 0
+                && Float.compare(mScaleStartAngle, s.mScaleStartAngle) == 0
+                && mDivisions == s.mDivisions
+                && mSubdivisions == s.mSubdivisions
+                && Arrays.equals(mRangeValues, s.mRangeValues)
+                && Arrays.equals(mRangeColors, s.mRangeColors)
+                && mTextShadowColor == s.mTextShadowColor;
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
+
+    /**
+     * A canonical description of the values, stored next to layers rendered at build time to
+     * tell apart styles whose hashes collide.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("border=").append(mShowOuterBorder).append(':').append(mOuterBorderWidth);
+        sb.append(";ranges=").append(mShowRanges).append(':').append(Arrays.toString(mRangeValues));
+        sb.append(";colors=");
+        if (null == mRangeColors) {
+            sb.append("null");
+        } else {
+            for (int i = 0; i < mRangeColors.length; i++) {
+                sb.append((0 == i) ? "" : ",").append(Integer.toHexString(mRangeColors[i]));
+            }
+        }
+        sb.append(";scale=").append(mScalePosition).append(':').append(mScaleStartValue).append(':')
+                .append(mScaleEndValue).append(':').append(mScaleStartAngle);
+        sb.append(";divisions=").append(mDivisions).append(':').append(mSubdivisions);
+        sb.append(";shadow=").append(Integer.toHexString(mTextShadowColor));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.alex.testapp;
+
+import java.util.Random;
+
+/**
+ * Emits a uniformly random speed between two bounds at a fixed rate, for demos and tests.
+ */
+public class SyntheticSpeedSource extends ThreadedSpeedSource {
+
+    private final long mPeriodNanos;
+    private final float mMin;
+    private final float mMax;
+    private final Random mRandom;
+
+    public SyntheticSpeedSource(final float rateHz, final float min, final float max, final long seed) {
+        super("SyntheticSpeedSource");
+        if (rateHz <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + rateHz);
+        }
+        mPeriodNanos = (long) (1e9 / rateHz);
+        mMin = min;
+        mMax = max;
+        mRandom = new Random(seed);
+    }
+
+    @Override
+    protected void produce(final SampleSink sink) throws InterruptedException {
+        long next = System.nanoTime();
+        while (isRunning()) {
+            sink.onSample(next, mMin + mRandom.nextFloat() * (mMax - mMin));
+            next += mPeriodNanos;
+            final long wait = next - System.nanoTime();
+            if (wait > 0) {
+                Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.alex.testapp;
+
+/**
+ * Base for sources that produce on a thread of their own.
+ */
+public abstract class ThreadedSpeedSource implements SpeedSource {
+
+    private final String mName;
+    private Thread mThread;
+    private volatile boolean mRunning;
+
+    protected ThreadedSpeedSource(final String name) {
+        mName = name;
+    }
+
+    @Override
+    public synchronized void start(final SampleSink sink) {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    produce(sink);
+                } catch (InterruptedException e) {
+                    // Stopped while waiting
+                } finally {
+                    mRunning = false;
+                }
+            }
+        }, mName);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    @Override
+    public void stop() {
+        final Thread thread;
+        synchronized (this) {
+            thread = mThread;
+            mThread = null;
+            mRunning = false;
+        }
+        if (null == thread) {
+            return;
+        }
+        thread.interrupt();
+        onStop();
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * Called on the stopping thread, e.g. to close a stream the producer is blocked on.
+     */
+    protected void onStop() {
+    }
+
+    /**
+     * Produces samples until {@link #isRunning()} turns false or the thread is interrupted.
+     */
+    protected abstract void produce(SampleSink sink) throws InterruptedException;
+}
@@ -0,0 +1,82 @@
+package com.example.alex.testapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the binary telemetry traces written by {@link TraceRecorder} and read by
+ * {@link TraceReader}. All multi-byte fixed fields are big-endian.
+ * <pre>
+ * header   magic:int version:int keyframeInterval:int reserved:int
+ * blocks   keyframeInterval samples each, a sample being
+ *          zigzag varint (micros - previous micros), zigzag varint (float bits - previous bits)
+ *          where "previous" restarts at (the block's firstMicros, 0) at the start of every block
+ * index    per block: firstMicros:long offset:long firstSample:long
+ * footer   indexOffset:long blockCount:int sampleCount:long endMicros:long magic:int
+ * </pre>
+ * Every block decodes on its own given its index entry, which is what makes seeking cheap.
+ * Timestamps are stored in microseconds; values are stored exactly.
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x47545243; // "GTRC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int INDEX_ENTRY_BYTES = 24;
+    static final int FOOTER_BYTES = 32;
+    static final int KEYFRAME_INTERVAL = 1024;
+    // Two varints of at most 10 and 5 bytes
+    static final int MAX_SAMPLE_BYTES = 15;
+
+    private TraceFormat() {
+    }
+
+    static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return the position after the written bytes
+     */
+    static int writeVarint(final byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    static long readVarint(final ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalStateException("Malformed varint at " + (buffer.position() - 1));
+            }
+        }
+    }
+
+    static int writeLong(final byte[] buffer, int position, final long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return position;
+    }
+
+    static int writeInt(final byte[] buffer, int position, final int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return position;
+    }
+}
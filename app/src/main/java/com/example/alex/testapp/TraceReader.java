@@ -0,0 +1,195 @@
+package com.example.alex.testapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps a trace written by {@link TraceRecorder}. Opening only reads the footer and the
+ * block index, so even hours of data open instantly; samples are decoded on demand by a
+ * {@link Cursor}, which does not allocate.
+ */
+public class TraceReader implements Closeable {
+
+    private final RandomAccessFile mFile;
+    private final ByteBuffer mBuffer;
+    private final long[] mBlockMicros;
+    private final int[] mBlockOffsets;
+    private final long[] mBlockFirstSamples;
+    private final long mSampleCount;
+    private final long mEndMicros;
+
+    public TraceReader(final File file) throws IOException {
+        mFile = new RandomAccessFile(file, "r");
+        try {
+            final long size = mFile.length();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Trace too large to map: " + size);
+            }
+            if (size < TraceFormat.HEADER_BYTES + TraceFormat.FOOTER_BYTES) {
+                throw new IOException("Not a complete trace: " + file);
+            }
+            mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (TraceFormat.MAGIC != mBuffer.getInt(0) || TraceFormat.VERSION != mBuffer.getInt(4)
+                    || TraceFormat.KEYFRAME_INTERVAL != mBuffer.getInt(8)) {
+                throw new IOException("Unsupported trace header: " + file);
+            }
+
+            final int footer = (int) size - TraceFormat.FOOTER_BYTES;
+            final long indexOffset = mBuffer.getLong(footer);
+            final int blocks = mBuffer.getInt(footer + 8);
+            mSampleCount = mBuffer.getLong(footer + 12);
+            mEndMicros = mBuffer.getLong(footer + 20);
+            if (TraceFormat.MAGIC != mBuffer.getInt(footer + 28)
+                    || indexOffset + (long) blocks * TraceFormat.INDEX_ENTRY_BYTES != footer) {
+                throw new IOException("Corrupt trace footer, was the recorder closed? " + file);
+            }
+
+            mBlockMicros = new long[blocks];
+            mBlockOffsets = new int[blocks];
+            mBlockFirstSamples = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                final int entry = (int) indexOffset + i * TraceFormat.INDEX_ENTRY_BYTES;
+                mBlockMicros[i] = mBuffer.getLong(entry);
+                mBlockOffsets[i] = (int) mBuffer.getLong(entry + 8);
+                mBlockFirstSamples[i] = mBuffer.getLong(entry + 16);
+            }
+        } catch (IOException | RuntimeException e) {
+            mFile.close();
+            throw e;
+        }
+    }
+
+    public long getSampleCount() {
+        return mSampleCount;
+    }
+
+    /**
+     * Timestamp of the first sample, or 0 for an empty trace.
+     */
+    public long getStartNanos() {
+        return (mBlockMicros.length > 0) ? mBlockMicros[0] * 1000 : 0;
+    }
+
+    public long getEndNanos() {
+        return mEndMicros * 1000;
+    }
+
+    public int getBlockCount() {
+        return mBlockMicros.length;
+    }
+
+    /**
+     * A new cursor before the first sample. Cursors are independent and each belongs to a
+     * single thread.
+     */
+    public Cursor newCursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+
+    /**
+     * Index of the last block starting at or before {@code micros}, or 0.
+     */
+    private int findBlock(final long micros) {
+        int low = 0;
+        int high = mBlockMicros.length - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (mBlockMicros[mid] <= micros) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    public final class Cursor {
+        private final ByteBuffer mData = mBuffer.duplicate();
+        private int mBlock = -1;
+        private long mSample;
+        private long mMicros;
+        private int mBits;
+
+        private Cursor() {
+        }
+
+        /**
+         * Decodes the next sample.
+         *
+         * @return false at the end of the trace
+         */
+        public boolean next() {
+            if (mSample >= mSampleCount) {
+                return false;
+            }
+            if (mBlock + 1 < mBlockFirstSamples.length && mBlockFirstSamples[mBlock + 1] == mSample) {
+                enterBlock(mBlock + 1);
+            }
+            mMicros += TraceFormat.unzigzag(TraceFormat.readVarint(mData));
+            mBits += (int) TraceFormat.unzigzag(TraceFormat.readVarint(mData));
+            mSample++;
+            return true;
+        }
+
+        /**
+         * Positions the cursor so that {@link #next()} returns the first sample at or after
+         * {@code timestampNanos}. Costs a binary search over the index plus at most one block
+         * of decoding.
+         */
+        public void seek(final long timestampNanos) {
+            if (0 == mBlockMicros.length) {
+                return;
+            }
+            final long micros = timestampNanos / 1000;
+            enterBlock(findBlock(micros));
+            mSample = mBlockFirstSamples[mBlock];
+            while (mSample < mSampleCount) {
+                final int position = mData.position();
+                final long previousMicros = mMicros;
+                final int previousBits = mBits;
+                final int block = mBlock;
+                next();
+                if (mMicros >= micros) {
+                    // Step back so that next() yields this sample again
+                    mData.position(position);
+                    mMicros = previousMicros;
+                    mBits = previousBits;
+                    mBlock = block;
+                    mSample--;
+                    return;
+                }
+            }
+        }
+
+        private void enterBlock(final int block) {
+            mBlock = block;
+            mData.position(mBlockOffsets[block]);
+            mMicros = mBlockMicros[block];
+            mBits = 0;
+        }
+
+        public long getTimestampNanos() {
+            return mMicros * 1000;
+        }
+
+        public float getValue() {
+            return Float.intBitsToFloat(mBits);
+        }
+
+        /**
+         * Number of samples consumed so far.
+         */
+        public long getPosition() {
+            return mSample;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.alex.testapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records timestamped samples into a compact binary trace, see {@link TraceFormat}.
+ * <p>
+ * {@link #onSample(long, float)} only queues the sample, so the recorder can sit at the end of
+ * a {@link SpeedStages} pipeline or be fed from the UI thread without ever blocking on I/O.
+ * A writer thread encodes and writes in batches. Samples that arrive while the queue is full
+ * are dropped and counted.
+ */
+public class TraceRecorder implements SampleSink, Closeable {
+
+    public static final int QUEUE_CAPACITY = 4096;
+    public static final long WRITE_INTERVAL_MILLIS = 20;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final OutputStream mOutput;
+    private final SampleQueue mQueue = new MpscSampleQueue(QUEUE_CAPACITY);
+    private final Thread mWriter;
+    private volatile boolean mClosed;
+    private volatile IOException mError;
+
+    // Writer thread state
+    private final byte[] mBuffer = new byte[BUFFER_BYTES];
+    private int mPosition;
+    private long mOffset;
+    private long mSampleCount;
+    private long mPreviousMicros;
+    private int mPreviousBits;
+    private long[] mIndex = new long[3 * 64];
+    private int mBlockCount;
+
+    public TraceRecorder(final File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    public TraceRecorder(final OutputStream output) throws IOException {
+        mOutput = output;
+        int position = TraceFormat.writeInt(mBuffer, 0, TraceFormat.MAGIC);
+        position = TraceFormat.writeInt(mBuffer, position, TraceFormat.VERSION);
+        position = TraceFormat.writeInt(mBuffer, position, TraceFormat.KEYFRAME_INTERVAL);
+        mPosition = TraceFormat.writeInt(mBuffer, position, 0);
+
+        mWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "TraceRecorder");
+        mWriter.setPriority(Thread.MIN_PRIORITY);
+        mWriter.setDaemon(true);
+        mWriter.start();
+    }
+
+    /**
+     * Queues a sample. Never blocks; any number of threads may call this.
+     */
+    @Override
+    public void onSample(final long timestampNanos, final float value) {
+        if (!mClosed) {
+            mQueue.offer(timestampNanos, value);
+        }
+    }
+
+    public long getDroppedCount() {
+        return mQueue.getDroppedCount();
+    }
+
+    /**
+     * @return the error that stopped the writer, if any
+     */
+    public IOException getError() {
+        return mError;
+    }
+
+    /**
+     * Writes the queued samples and the index and closes the output. Samples offered afterwards
+     * are ignored.
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mWriter.interrupt();
+        boolean interrupted = false;
+        while (mWriter.isAlive()) {
+            try {
+                mWriter.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (null == mError) {
+                mQueue.drainTo(mEncoder);
+                writeIndex();
+                flush();
+            }
+        } catch (IOError e) {
+            mError = e.mCause;
+        } finally {
+            mOutput.close();
+        }
+        if (null != mError) {
+            throw mError;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (!mClosed) {
+                if (0 == mQueue.drainTo(mEncoder)) {
+                    Thread.sleep(WRITE_INTERVAL_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closing; the rest is written by close()
+        } catch (IOError e) {
+            mError = e.mCause;
+        }
+    }
+
+    private final SampleSink mEncoder = new SampleSink() {
+        @Override
+        public void onSample(final long timestampNanos, final float value) {
+            encode(timestampNanos, value);
+        }
+    };
+
+    private void encode(final long timestampNanos, final float value) {
+        final long micros = timestampNanos / 1000;
+        final int bits = Float.floatToRawIntBits(value);
+        if (0 == mSampleCount % TraceFormat.KEYFRAME_INTERVAL) {
+            startBlock(micros);
+        }
+        if (mPosition > BUFFER_BYTES - TraceFormat.MAX_SAMPLE_BYTES) {
+            flushUnchecked();
+        }
+        final int start = mPosition;
+        int position = TraceFormat.writeVarint(mBuffer, start, TraceFormat.zigzag(micros - mPreviousMicros));
+        position = TraceFormat.writeVarint(mBuffer, position, TraceFormat.zigzag(bits - mPreviousBits) & 0xFFFFFFFFL);
+        mPosition = position;
+        mOffset += position - start;
+        mPreviousMicros = micros;
+        mPreviousBits = bits;
+        mSampleCount++;
+    }
+
+    private void startBlock(final long micros) {
+        if (mIndex.length < 3 * (mBlockCount + 1)) {
+            final long[] index = new long[mIndex.length * 2];
+            System.arraycopy(mIndex, 0, index, 0, mIndex.length);
+            mIndex = index;
+        }
+        final int entry = 3 * mBlockCount++;
+        mIndex[entry] = micros;
+        mIndex[entry + 1] = TraceFormat.HEADER_BYTES + mOffset;
+        mIndex[entry + 2] = mSampleCount;
+        mPreviousMicros = micros;
+        mPreviousBits = 0;
+    }
+
+    private void writeIndex() throws IOException {
+        final long indexOffset = TraceFormat.HEADER_BYTES + mOffset;
+        for (int i = 0; i < mBlockCount; i++) {
+            if (mPosition > BUFFER_BYTES - TraceFormat.INDEX_ENTRY_BYTES) {
+                flush();
+            }
+            int position = TraceFormat.writeLong(mBuffer, mPosition, mIndex[3 * i]);
+            position = TraceFormat.writeLong(mBuffer, position, mIndex[3 * i + 1]);
+            mPosition = TraceFormat.writeLong(mBuffer, position, mIndex[3 * i + 2]);
+        }
+        if (mPosition > BUFFER_BYTES - TraceFormat.FOOTER_BYTES) {
+            flush();
+        }
+        int position = TraceFormat.writeLong(mBuffer, mPosition, indexOffset);
+        position = TraceFormat.writeInt(mBuffer, position, mBlockCount);
+        position = TraceFormat.writeLong(mBuffer, position, mSampleCount);
+        position = TraceFormat.writeLong(mBuffer, position, mPreviousMicros);
+        mPosition = TraceFormat.writeInt(mBuffer, position, TraceFormat.MAGIC);
+    }
+
+    private void flush() throws IOException {
+        mOutput.write(mBuffer, 0, mPosition);
+        mPosition = 0;
+    }
+
+    private void flushUnchecked() {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new IOError(e);
+        }
+    }
+
+    /**
+     * Carries an I/O failure out of the encoding sink, which cannot throw checked exceptions.
+     */
+    private static final class IOError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final IOException mCause;
+
+        IOError(final IOException cause) {
+            super(cause);
+            mCause = cause;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.alex.testapp;
+
+/**
+ * Replays a recorded trace into a sink, e.g. a {@link GaugeView}, at real time, N times real
+ * time or as fast as possible, optionally starting from a timestamp. See {@link ReplayPacer}
+ * for the timestamps handed to the sink. Nothing is allocated per sample.
+ */
+public class TraceReplaySource extends ThreadedSpeedSource {
+
+    public static final float AS_FAST_AS_POSSIBLE = 0.0f;
+
+    private final TraceReader mReader;
+    private final float mSpeed;
+    private final long mStartNanos;
+
+    /**
+     * @param speed      1 for real time, N for N times faster, or {@link #AS_FAST_AS_POSSIBLE}
+     * @param startNanos trace timestamp to start from
+     */
+    public TraceReplaySource(final TraceReader reader, final float speed, final long startNanos) {
+        super("TraceReplaySource");
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative: " + speed);
+        }
+        mReader = reader;
+        mSpeed = speed;
+        mStartNanos = startNanos;
+    }
+
+    public TraceReplaySource(final TraceReader reader, final float speed) {
+        this(reader, speed, reader.getStartNanos());
+    }
+
+    @Override
+    protected void produce(final SampleSink sink) throws InterruptedException {
+        final TraceReader.Cursor cursor = mReader.newCursor();
+        cursor.seek(mStartNanos);
+        final ReplayPacer pacer = new ReplayPacer(mSpeed);
+        while (isRunning() && cursor.next()) {
+            sink.onSample(pacer.pace(cursor.getTimestampNanos()), cursor.getValue());
+        }
+    }
+}
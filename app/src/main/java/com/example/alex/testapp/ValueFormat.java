@@ -0,0 +1,68 @@
+package com.example.alex.testapp;
+
+/**
+ * Formatting of the numeric readout.
+ * <p>
+ * {@link #format(float, int, char[])} writes into a caller-owned buffer so the readout can
+ * be rendered every frame without allocating.
+ */
+public final class ValueFormat {
+
+    public static final int MAX_LENGTH = 24;
+    // Keeps the scale factor and the digits of a saturated value within a long and the buffer
+    public static final int MAX_DECIMALS = 9;
+
+    private ValueFormat() {
+    }
+
+    /**
+     * The value truncated to a whole number. Values beyond the range of a long saturate, and
+     * NaN is 0.
+     */
+    public static String valueString(final float value) {
+        return String.valueOf(Math.max((long) (double) value, -Long.MAX_VALUE));
+    }
+
+    /**
+     * Formats {@code value} truncated to {@code decimals} fractional digits, like
+     * {@link #valueString(float)} does for zero decimals.
+     *
+     * @param decimals 0 to {@link #MAX_DECIMALS}
+     * @return the number of chars written to {@code buffer}
+     */
+    public static int format(final float value, final int decimals, final char[] buffer) {
+        if (buffer.length < MAX_LENGTH) {
+            throw new IllegalArgumentException("Buffer must hold at least " + MAX_LENGTH + " chars");
+        }
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("Decimals must be 0 to " + MAX_DECIMALS + ": " + decimals);
+        }
+        long factor = 1;
+        for (int i = 0; i < decimals; i++) {
+            factor *= 10;
+        }
+        // Saturated, and kept off Long.MIN_VALUE so that it can be negated
+        long scaled = Math.max((long) ((double) value * factor), -Long.MAX_VALUE);
+        int length = 0;
+        if (scaled < 0) {
+            buffer[length++] = '-';
+            scaled = -scaled;
+        }
+
+        // Write the digits backwards at the end of the buffer, then move them into place
+        int end = buffer.length;
+        int digits = 0;
+        do {
+            if (digits == decimals && decimals > 0) {
+                buffer[--end] = '.';
+            }
+            buffer[--end] = (char) ('0' + (scaled % 10));
+            scaled /= 10;
+            digits++;
+        } while (scaled > 0 || digits <= decimals);
+
+        final int count = buffer.length - end;
+        System.arraycopy(buffer, end, buffer, length, count);
+        return length + count;
+    }
+}
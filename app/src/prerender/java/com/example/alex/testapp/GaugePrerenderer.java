@@ -0,0 +1,216 @@
+package com.example.alex.testapp;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders the static layers of the gauges listed in a properties file into PNG assets that
+ * {@link PrerenderedLayers} picks up at runtime. Lives in its own source set, compiled against
+ * the app and the Java2D canvas of the unit tests but packaged with neither, and is run by the
+ * {@code prerenderGauges} Gradle task:
+ * <pre>
+ * GaugePrerenderer prerender.properties src/main/assets/gauges
+ * </pre>
+ * Every gauge is rendered at its size in dp for each of the listed densities. Style values
+ * not given in the file are GaugeView's defaults; custom range arrays aren't supported.
+ */
+public class GaugePrerenderer {
+
+    // GaugeView's defaults, spelled out so that GaugeView (and Color) aren't loaded on the JVM
+    private static final float[] RANGE_VALUES = {16.0f, 25.0f, 40.0f, 100.0f};
+    private static final int[] RANGE_COLORS = {0xFF000000, 0xFF000000, 0xFF000000, 0xFF000000};
+    private static final int TEXT_SHADOW_COLOR = 0x64000000;
+    // The range paints' shadow layer, in the unit square
+    private static final float SHADOW_RADIUS = 0.005f;
+    private static final float SHADOW_OFFSET = 0.002f;
+
+    private static final int DECODE_RUNS = 5;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: GaugePrerenderer <properties> <output dir>");
+            System.exit(2);
+        }
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(args[0]);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        final File outDir = new File(args[1]);
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Could not create " + outDir);
+        }
+
+        final String[] densities = properties.getProperty("densities", "1.0").split(",");
+        long totalRender = 0;
+        long totalDecode = 0;
+        final Map<String, String> index = new TreeMap<>();
+        for (String name : properties.getProperty("gauges", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            final Gauge gauge = new Gauge(properties, name);
+            final Set<Integer> sizes = new LinkedHashSet<>();
+            for (String density : densities) {
+                // Like TypedValue.complexToDimensionPixelSize
+                sizes.add((int) (gauge.mSize * Float.parseFloat(density.trim()) + 0.5f));
+            }
+            for (int size : sizes) {
+                final long start = System.nanoTime();
+                final BufferedImage image = gauge.render(size);
+                final long render = System.nanoTime() - start;
+
+                final StaticLayerSpec layer = gauge.getStaticLayer();
+                final File file = new File(outDir, layer.getAssetName(size));
+                ImageIO.write(image, "png", file);
+                index.put(file.getName(), layer.toString());
+                final long decode = timeDecode(file);
+                totalRender += render;
+                totalDecode += decode;
+                System.out.println(String.format("%s: %s, draw %.2f ms, decode %.2f ms",
+                        name, file.getName(), render / 1e6, decode / 1e6));
+            }
+        }
+        writeIndex(new File(outDir, StaticLayerSpec.ASSET_INDEX), index);
+        System.out.println(String.format("Total: draw %.2f ms, decode %.2f ms, saved %.2f ms before the first frame",
+                totalRender / 1e6, totalDecode / 1e6, (totalRender - totalDecode) / 1e6));
+    }
+
+    /**
+     * Sorted and without the date comment of {@link Properties#store}, so it only changes
+     * with the layers.
+     */
+    private static void writeIndex(final File file, final Map<String, String> index) throws IOException {
+        final Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+        try {
+            for (Map.Entry<String, String> entry : index.entrySet()) {
+                out.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static long timeDecode(final File file) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < DECODE_RUNS; i++) {
+            final long start = System.nanoTime();
+            ImageIO.read(file);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static final class Gauge {
+        final float mSize;
+        final boolean mShowOuterBorder;
+        final boolean mShowRanges;
+        final float mOuterBorderWidth;
+        final float mScalePosition;
+        final float mScaleStartValue;
+        final float mScaleEndValue;
+        final float mScaleStartAngle;
+        final int mDivisions;
+        final int mSubdivisions;
+
+        Gauge(final Properties p, final String name) {
+            mSize = Float.parseFloat(require(p, name + ".size"));
+            mShowOuterBorder = Boolean.parseBoolean(p.getProperty(name + ".showOuterBorder", "true"));
+            final boolean showScale = Boolean.parseBoolean(p.getProperty(name + ".showScale", "false"));
+            mShowRanges = Boolean.parseBoolean(p.getProperty(name + ".showRanges", "true"));
+            // Gated the way GaugeStyle reads them
+            mOuterBorderWidth = mShowOuterBorder
+                    ? Float.parseFloat(p.getProperty(name + ".outerBorderWidth", "0.06")) : 0.0f;
+            mScalePosition = (showScale || mShowRanges)
+                    ? Float.parseFloat(p.getProperty(name + ".scalePosition", "0.015")) : 0.0f;
+            mScaleStartValue = Float.parseFloat(p.getProperty(name + ".scaleStartValue", "0"));
+            mScaleEndValue = Float.parseFloat(p.getProperty(name + ".scaleEndValue", "100"));
+            mScaleStartAngle = Float.parseFloat(p.getProperty(name + ".scaleStartAngle", "60"));
+            mDivisions = Integer.parseInt(p.getProperty(name + ".divisions", "5"));
+            mSubdivisions = Integer.parseInt(p.getProperty(name + ".subdivisions", "5"));
+        }
+
+        private static String require(final Properties p, final String key) {
+            final String value = p.getProperty(key);
+            if (null == value) {
+                throw new IllegalArgumentException("Missing " + key);
+            }
+            return value;
+        }
+
+        StaticLayerSpec getStaticLayer() {
+            return new StaticLayerSpec(mShowOuterBorder, mShowRanges, mOuterBorderWidth, mScalePosition,
+                    mScaleStartValue, mScaleEndValue, mScaleStartAngle, mDivisions, mSubdivisions,
+                    mShowRanges ? RANGE_VALUES : null, mShowRanges ? RANGE_COLORS : null, TEXT_SHADOW_COLOR);
+        }
+
+        private GaugeScene newScene(final boolean showOuterBorder) {
+            final GaugeScale scale = new GaugeScale(mScaleStartValue, mScaleEndValue, mScaleStartAngle,
+                    mDivisions, mSubdivisions, mShowRanges ? RANGE_VALUES : null);
+            return new GaugeScene(scale, showOuterBorder, mOuterBorderWidth, mShowRanges, mScalePosition, 0, 0);
+        }
+
+        BufferedImage render(final int size) {
+            final BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D g = image.createGraphics();
+            if (mShowRanges) {
+                g.drawImage(renderShadow(size), Math.round(SHADOW_OFFSET * size), Math.round(SHADOW_OFFSET * size), null);
+            }
+            final GaugeScene scene = newScene(mShowOuterBorder);
+            final Java2DGaugeCanvas canvas = new Java2DGaugeCanvas(scene, size, size);
+            scene.drawStaticLayer(canvas);
+            canvas.dispose();
+            g.setComposite(AlphaComposite.SrcOver);
+            g.drawImage(canvas.getImage(), 0, 0, null);
+            g.dispose();
+            return image;
+        }
+
+        /**
+         * The ticks alone, in the shadow color and blurred, like the range paints' shadow layer.
+         */
+        private BufferedImage renderShadow(final int size) {
+            final GaugeScene scene = newScene(false);
+            final Java2DGaugeCanvas canvas = new Java2DGaugeCanvas(scene, size, size);
+            scene.drawStaticLayer(canvas);
+            canvas.dispose();
+            final BufferedImage ticks = canvas.getImage();
+            final int shadowAlpha = TEXT_SHADOW_COLOR >>> 24;
+            final int shadowRgb = TEXT_SHADOW_COLOR & 0xFFFFFF;
+            for (int y = 0; y < size; y++) {
+                for (int x = 0; x < size; x++) {
+                    final int alpha = (ticks.getRGB(x, y) >>> 24) * shadowAlpha / 255;
+                    ticks.setRGB(x, y, (alpha << 24) | shadowRgb);
+                }
+            }
+            final int radius = Math.max(1, Math.round(SHADOW_RADIUS * size));
+            final int side = 2 * radius + 1;
+            final float[] weights = new float[side];
+            Arrays.fill(weights, 1.0f / side);
+            final BufferedImage horizontal = new ConvolveOp(new Kernel(side, 1, weights), ConvolveOp.EDGE_NO_OP, null)
+                    .filter(ticks, null);
+            return new ConvolveOp(new Kernel(1, side, weights), ConvolveOp.EDGE_NO_OP, null).filter(horizontal, null);
+        }
+    }
+}
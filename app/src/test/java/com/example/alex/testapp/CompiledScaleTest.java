@@ -0,0 +1,60 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompiledScaleTest {
+
+    private static final float[] RANGES = {16.0f, 25.0f, 40.0f, 100.0f};
+
+    private static int linearRangeIndex(final float value) {
+        for (int i = 0; i < RANGES.length - 1; i++) {
+            if (value < RANGES[i]) return i;
+        }
+        if (value <= RANGES[RANGES.length - 1]) return RANGES.length - 1;
+        return -1;
+    }
+
+    @Test
+    public void binaryRangeLookupMatchesLinearScan() throws Exception {
+        final GaugeScale scale = new GaugeScale(0.0f, 100.0f, 60.0f, 5, 5, RANGES);
+        for (float value = 0.0f; value <= 100.0f; value += 0.25f) {
+            assertEquals(linearRangeIndex(value), scale.getRangeIndex(value));
+        }
+        assertEquals(1, scale.getRangeIndex(16.0f));
+        assertEquals(3, scale.getRangeIndex(100.0f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valueAboveLastRangeIsRejected() throws Exception {
+        new GaugeScale(0.0f, 100.0f, 60.0f, 5, 5, RANGES).getRangeIndex(100.5f);
+    }
+
+    @Test
+    public void divisionTicksAreGroupedByRange() throws Exception {
+        final GaugeScale scale = new GaugeScale(0.0f, 100.0f, 60.0f, 5, 5, RANGES);
+        final CompiledScale compiled = new CompiledScale(scale, 0.03f);
+
+        // Divisions at 0, 20, 40, 60, 80 and 100
+        assertEquals(4, compiled.getLineFloatCount(0));
+        assertEquals(4, compiled.getLineFloatCount(1));
+        assertEquals(0, compiled.getLineFloatCount(2));
+        assertEquals(16, compiled.getLineFloatCount(3));
+    }
+
+    @Test
+    public void tickEndpointsMatchCanvasRotation() throws Exception {
+        final GaugeScale scale = new GaugeScale(0.0f, 100.0f, 90.0f, 2, 1, new float[]{100.0f});
+        final CompiledScale compiled = new CompiledScale(scale, 0.0f);
+        final float[] lines = compiled.getLines(0);
+        assertEquals(12, compiled.getLineFloatCount(0));
+
+        // The first tick sits at 270 degrees (West), the middle one points North
+        assertEquals(0.0f + CompiledScale.DIVISION_TICK_OFFSET, lines[0], 1e-5f);
+        assertEquals(0.5f, lines[1], 1e-5f);
+        assertEquals(0.5f, lines[4], 1e-5f);
+        assertEquals(0.0f + CompiledScale.DIVISION_TICK_OFFSET, lines[5], 1e-5f);
+        assertEquals(0.0f + CompiledScale.DIVISION_TICK_OFFSET + CompiledScale.DIVISION_TICK_LENGTH, lines[7], 1e-5f);
+    }
+}
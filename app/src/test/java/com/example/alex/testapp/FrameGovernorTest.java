@@ -0,0 +1,101 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameGovernorTest {
+
+    private static final long FRAME = 16666667L;
+
+    @Test
+    public void subPixelMotionIsDrawnLessOften() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        // A 100 px needle moving 0.1 degrees per frame, i.e. about 0.17 px
+        governor.setRadius(100.0f);
+        int drawn = 0;
+        for (int i = 0; i < 60; i++) {
+            if (FrameGovernor.DRAW == governor.onFrame(i * FRAME, i * 0.1f, 90.0f)) {
+                drawn++;
+            }
+        }
+        assertTrue("drawn " + drawn, drawn >= 9 && drawn <= 12);
+        assertEquals(60 - drawn, governor.getSkippedFrameCount());
+    }
+
+    @Test
+    public void fastMotionIsDrawnEveryFrame() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        governor.setRadius(100.0f);
+        for (int i = 0; i < 30; i++) {
+            assertEquals(FrameGovernor.DRAW, governor.onFrame(i * FRAME, i * 2.0f, 90.0f));
+        }
+    }
+
+    @Test
+    public void settlesNearTarget() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        governor.setRadius(100.0f);
+        assertEquals(FrameGovernor.DRAW, governor.onFrame(0, 10.0f, 10.1f));
+        assertEquals(FrameGovernor.SETTLED, governor.onFrame(FRAME, 10.05f, 10.1f));
+    }
+
+    @Test
+    public void doesNotSettleWhileOvershooting() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        governor.setRadius(100.0f);
+        governor.onFrame(0, 8.0f, 10.0f);
+        // Passes right over the target at speed
+        assertEquals(FrameGovernor.DRAW, governor.onFrame(FRAME, 10.0f, 10.0f));
+    }
+
+    @Test
+    public void capLimitsDrawnFrames() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        governor.setRadius(100.0f);
+        governor.setMaxFrameRate(30);
+        int drawn = 0;
+        for (int i = 0; i < 60; i++) {
+            if (FrameGovernor.DRAW == governor.onFrame(i * FRAME, i * 2.0f, 180.0f)) {
+                drawn++;
+            }
+        }
+        assertEquals(30, drawn);
+    }
+
+    @Test
+    public void drawsEveryFrameWithoutRadius() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(FrameGovernor.DRAW, governor.onFrame(i * FRAME, 1.0f, 1.0f));
+        }
+    }
+
+    @Test
+    public void arrivalIsDrawnUnderCap() throws Exception {
+        final FrameGovernor governor = new FrameGovernor();
+        governor.setRadius(100.0f);
+        governor.setMaxFrameRate(20);
+        // A linear needle at full speed, which stops on the target in one frame
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_LINEAR);
+        physics.setMaxRate(200.0f);
+        physics.setTarget(0, 50.0f);
+        float drawn = Float.NaN;
+        long time = 0;
+        while (physics.isMoving(0)) {
+            time += FRAME;
+            physics.advanceNanos(FRAME);
+            final float angle = physics.getValue(0);
+            final int decision = physics.isMoving(0)
+                    ? governor.onFrame(time, angle, 50.0f) : governor.onRest(time, angle);
+            if (FrameGovernor.DRAW == decision) {
+                drawn = angle;
+            }
+        }
+        assertTrue(governor.getSkippedFrameCount() > 0);
+        assertEquals(50.0f, drawn, 0.0f);
+        // Already shown there
+        assertEquals(FrameGovernor.SKIP, governor.onRest(time + FRAME, 50.0f));
+    }
+}
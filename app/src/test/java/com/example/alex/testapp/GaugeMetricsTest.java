@@ -0,0 +1,66 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GaugeMetricsTest {
+
+    @Test
+    public void histogramBucketsCoverTheirValues() throws Exception {
+        final long[] values = {0, 1, 15, 16, 17, 1000, 123456, 16666667, Long.MAX_VALUE};
+        for (final long value : values) {
+            final int index = LatencyHistogram.indexOf(value);
+            assertTrue(index < LatencyHistogram.BUCKETS);
+            assertTrue(LatencyHistogram.lowerBoundOf(index) <= value);
+            assertTrue(LatencyHistogram.upperBoundOf(index) >= value);
+        }
+    }
+
+    @Test
+    public void histogramPercentilesAreWithinBucketPrecision() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000L, histogram.getMin());
+        assertEquals(1000000L, histogram.getMax());
+        assertEquals(500500.0, histogram.getMean(), 0.001);
+
+        final long p50 = histogram.getValueAtPercentile(50.0);
+        assertTrue(Math.abs(p50 - 500000L) <= 500000L / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(1000000L, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void lateAndDroppedFrames() throws Exception {
+        final GaugeMetrics metrics = new GaugeMetrics();
+        final long period = GaugeMetrics.FRAME_PERIOD_NANOS;
+        long time = 0;
+        metrics.recordFrame(time, -1);
+        metrics.recordFrame(time + period, time);
+        time += period;
+        // Two vsyncs missed
+        metrics.recordFrame(time + 3 * period, time);
+
+        assertEquals(3, metrics.getFrameCount());
+        assertEquals(1, metrics.getLateFrameCount());
+        assertEquals(2, metrics.getDroppedFrameCount());
+        assertEquals(2, metrics.getHistogram(GaugeMetrics.PHASE_FRAME_INTERVAL).getCount());
+    }
+
+    @Test
+    public void jsonSnapshotListsEveryPhase() throws Exception {
+        final GaugeMetrics metrics = new GaugeMetrics();
+        metrics.end(GaugeMetrics.PHASE_DRAW, metrics.begin());
+        final StringBuilder json = new StringBuilder();
+        metrics.writeJson(json);
+
+        assertTrue(json.toString().startsWith("{\"uptimeMs\":"));
+        for (int i = 0; i < GaugeMetrics.PHASE_COUNT; i++) {
+            assertTrue(json.indexOf("\"" + GaugeMetrics.getPhaseName(i) + "\":{\"count\":") > 0);
+        }
+        assertTrue(json.indexOf("\"p99_9Ns\":") > 0);
+    }
+}
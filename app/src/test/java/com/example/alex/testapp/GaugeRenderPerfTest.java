@@ -0,0 +1,132 @@
+package com.example.alex.testapp;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times the static layer and needle frames against the baseline in
+ * src/test/resources/render-baseline.properties and fails when either is slower by more
+ * than the threshold (50%, or {@code -Prender.threshold=0.2} for 20%). Also checks that a
+ * needle frame allocates next to nothing. The results are written to
+ * build/reports/render/perf.properties; {@code -Prender.updateBaseline} records them as the
+ * new baseline. Baselines are machine specific, so they aren't committed: record one on the
+ * CI box. Without a baseline the timing check is skipped.
+ */
+public class GaugeRenderPerfTest {
+
+    static final File BASELINE = new File("src/test/resources/render-baseline.properties");
+    static final File REPORT = new File("build/reports/render/perf.properties");
+    static final float THRESHOLD = 0.5f;
+    static final int SIZE = 300;
+    static final int WARMUP_FRAMES = 300;
+    static final int FRAMES = 1000;
+    // Java2D keeps a little per-draw state of its own
+    static final long MAX_BYTES_PER_NEEDLE_FRAME = 2048;
+
+    @Test
+    public void renderTimeWithinBaseline() throws Exception {
+        final GaugeScene scene = GaugeRenderTest.newScene();
+        final Java2DGaugeCanvas canvas = new Java2DGaugeCanvas(scene, SIZE, SIZE);
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            renderStatic(scene, canvas);
+            renderNeedle(scene, canvas, i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            renderStatic(scene, canvas);
+        }
+        final long staticNanos = (System.nanoTime() - start) / FRAMES;
+
+        final long bytes = getAllocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            renderNeedle(scene, canvas, i);
+        }
+        final long needleNanos = (System.nanoTime() - start) / FRAMES;
+        final long needleBytes = (bytes < 0) ? -1 : (getAllocatedBytes() - bytes) / FRAMES;
+        canvas.dispose();
+
+        final Properties results = new Properties();
+        results.setProperty("static.nanos", Long.toString(staticNanos));
+        results.setProperty("needle.nanos", Long.toString(needleNanos));
+        results.setProperty("needle.bytes", Long.toString(needleBytes));
+        store(results, REPORT);
+
+        if (needleBytes >= 0) {
+            assertTrue("needle frame allocates " + needleBytes + " bytes", needleBytes <= MAX_BYTES_PER_NEEDLE_FRAME);
+        }
+
+        if (Boolean.getBoolean("render.updateBaseline")) {
+            store(results, BASELINE);
+            return;
+        }
+        Assume.assumeTrue("No render baseline; record one with -Prender.updateBaseline", BASELINE.exists());
+        final Properties baseline = load(BASELINE);
+        final float threshold = Float.parseFloat(System.getProperty("render.threshold", Float.toString(THRESHOLD)));
+        assertWithin("static layer", staticNanos, Long.parseLong(baseline.getProperty("static.nanos")), threshold);
+        assertWithin("needle frame", needleNanos, Long.parseLong(baseline.getProperty("needle.nanos")), threshold);
+    }
+
+    private static void renderStatic(final GaugeScene scene, final Java2DGaugeCanvas canvas) {
+        canvas.clear();
+        scene.drawStaticLayer(canvas);
+    }
+
+    private static void renderNeedle(final GaugeScene scene, final Java2DGaugeCanvas canvas, final int frame) {
+        scene.drawNeedle(canvas, frame % 100);
+    }
+
+    private static void assertWithin(final String what, final long nanos, final long baseline, final float threshold) {
+        assertTrue(what + " took " + nanos + " ns against a baseline of " + baseline + " ns",
+                nanos <= baseline * (1 + threshold));
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 where the JVM cannot tell.
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static Properties load(final File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    private static void store(final Properties properties, final File file) throws IOException {
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "Mean per frame at " + SIZE + "x" + SIZE);
+        } finally {
+            out.close();
+        }
+    }
+}
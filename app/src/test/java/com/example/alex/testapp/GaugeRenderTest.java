@@ -0,0 +1,104 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * Renders the gauge at several sizes and values and compares the result with the golden
+ * images in src/test/resources/golden. Run with {@code -Pgolden.update} to re-record them
+ * after an intended visual change or to record a new one; a missing golden fails.
+ */
+public class GaugeRenderTest {
+
+    static final File GOLDEN_DIR = new File("src/test/resources/golden");
+    // Per channel difference that still counts as equal, for anti-aliasing noise
+    static final int CHANNEL_TOLERANCE = 16;
+    static final float MAX_DIFFERENT_PIXELS = 0.002f;
+
+    static final int[] SIZES = {96, 300};
+    static final float[] VALUES = {0.0f, 37.5f, 100.0f};
+
+    static GaugeScene newScene() {
+        final GaugeScale scale = new GaugeScale(GaugeView.SCALE_START_VALUE, GaugeView.SCALE_END_VALUE,
+                GaugeView.SCALE_START_ANGLE, GaugeView.SCALE_DIVISIONS, GaugeView.SCALE_SUBDIVISIONS,
+                new float[]{16.0f, 25.0f, 40.0f, 100.0f});
+        return new GaugeScene(scale, true, GaugeView.OUTER_BORDER_WIDTH, true, GaugeView.SCALE_POSITION,
+                GaugeView.NEEDLE_WIDTH, GaugeView.NEEDLE_HEIGHT);
+    }
+
+    static BufferedImage render(final GaugeScene scene, final int width, final int height, final float value) {
+        final Java2DGaugeCanvas canvas = new Java2DGaugeCanvas(scene, width, height);
+        scene.drawStaticLayer(canvas);
+        scene.drawNeedle(canvas, value);
+        canvas.dispose();
+        return canvas.getImage();
+    }
+
+    @Test
+    public void matchesGoldenImages() throws Exception {
+        final GaugeScene scene = newScene();
+        final boolean update = Boolean.getBoolean("golden.update");
+        for (int size : SIZES) {
+            for (float value : VALUES) {
+                final BufferedImage actual = render(scene, size, size, value);
+                final File golden = new File(GOLDEN_DIR, "gauge_" + size + "_" + (int) (value * 10) + ".png");
+                if (update) {
+                    GOLDEN_DIR.mkdirs();
+                    ImageIO.write(actual, "png", golden);
+                    continue;
+                }
+                assertTrue("Missing golden " + golden.getName() + ", run with -Pgolden.update", golden.exists());
+                final float different = compare(ImageIO.read(golden), actual);
+                assertTrue(golden.getName() + " differs in " + (different * 100) + "% of the pixels",
+                        different <= MAX_DIFFERENT_PIXELS);
+            }
+        }
+    }
+
+    @Test
+    public void needleMovesTheImage() throws Exception {
+        final GaugeScene scene = newScene();
+        assertTrue(compare(render(scene, 96, 96, 0.0f), render(scene, 96, 96, 50.0f)) > MAX_DIFFERENT_PIXELS);
+    }
+
+    @Test
+    public void nonSquareViewsAreCentered() throws Exception {
+        final GaugeScene scene = newScene();
+        final BufferedImage wide = render(scene, 200, 100, 50.0f);
+        // Nothing is drawn into the side bands
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 48; x++) {
+                assertEquals(0, wide.getRGB(x, y) >>> 24);
+                assertEquals(0, wide.getRGB(199 - x, y) >>> 24);
+            }
+        }
+    }
+
+    /**
+     * @return the fraction of pixels whose channels differ by more than the tolerance
+     */
+    static float compare(final BufferedImage expected, final BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int different = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                final int a = expected.getRGB(x, y);
+                final int b = actual.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    if (Math.abs(((a >>> shift) & 0xFF) - ((b >>> shift) & 0xFF)) > CHANNEL_TOLERANCE) {
+                        different++;
+                        break;
+                    }
+                }
+            }
+        }
+        return different / (float) (expected.getWidth() * expected.getHeight());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GaugeStartupTest {
+
+    private static final long MS = 1000000L;
+
+    private static class Recorder implements GaugeStartup.Listener {
+        int mCalls;
+
+        @Override
+        public void onStartup(final GaugeStartup startup) {
+            mCalls++;
+        }
+    }
+
+    @Test
+    public void reportsOnceWhenTheLayerIsShown() throws Exception {
+        final GaugeStartup startup = new GaugeStartup(100 * MS);
+        final Recorder recorder = new Recorder();
+        startup.setListener(recorder);
+        startup.mark(GaugeStartup.CONSTRUCTED, 102 * MS);
+        startup.mark(GaugeStartup.LAID_OUT, 110 * MS);
+        // The needle alone first
+        startup.mark(GaugeStartup.FIRST_FRAME, 120 * MS);
+        assertEquals(0, recorder.mCalls);
+        startup.mark(GaugeStartup.LAYER_READY, 150 * MS);
+        startup.mark(GaugeStartup.LAYER_READY, 170 * MS);
+        assertEquals(1, recorder.mCalls);
+        assertEquals(2 * MS, startup.getNanos(GaugeStartup.CONSTRUCTED));
+        assertEquals(20 * MS, startup.getNanos(GaugeStartup.FIRST_FRAME));
+        assertEquals(50 * MS, startup.getNanos(GaugeStartup.LAYER_READY));
+    }
+
+    @Test
+    public void lateListenerIsCalledRightAway() throws Exception {
+        final GaugeStartup startup = new GaugeStartup(0);
+        startup.mark(GaugeStartup.FIRST_FRAME, 5 * MS);
+        startup.mark(GaugeStartup.LAYER_READY, 5 * MS);
+        final Recorder recorder = new Recorder();
+        startup.setListener(recorder);
+        assertEquals(1, recorder.mCalls);
+        assertEquals(-1, startup.getNanos(GaugeStartup.LAID_OUT));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.alex.testapp;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+
+/**
+ * Renders a {@link GaugeScene} into a {@link BufferedImage} with Java2D, so drawing can be
+ * checked on a plain JVM. Sets up the same unit-square transform as
+ * {@link GaugeRenderer#fitUnitSquare}.
+ */
+class Java2DGaugeCanvas implements GaugeCanvas {
+
+    private final BufferedImage mImage;
+    private final Graphics2D mGraphics;
+    private final Color[] mColors;
+    private final BasicStroke[] mStrokes;
+    private final ArrayDeque<AffineTransform> mSaved = new ArrayDeque<>();
+    private final Line2D.Float mLine = new Line2D.Float();
+    private final Arc2D.Float mArc = new Arc2D.Float();
+    private final Ellipse2D.Float mCircle = new Ellipse2D.Float();
+    private final Path2D.Float mPath = new Path2D.Float();
+    private float[] mPathPoints;
+
+    Java2DGaugeCanvas(final GaugeScene scene, final int width, final int height) {
+        mImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        mGraphics = mImage.createGraphics();
+        mGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        mGraphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+        final int paints = scene.getPaintCount();
+        mColors = new Color[paints];
+        mStrokes = new BasicStroke[paints];
+        for (int i = 0; i < paints; i++) {
+            mColors[i] = new Color(scene.getColor(i), true);
+            final float strokeWidth = scene.getStrokeWidth(i);
+            mStrokes[i] = (strokeWidth > 0) ? new BasicStroke(strokeWidth, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER) : null;
+        }
+
+        final float scale = Math.min(width, height);
+        mGraphics.scale(scale, scale);
+        mGraphics.translate((scale == height) ? ((width - scale) / 2) / scale : 0,
+                (scale == width) ? ((height - scale) / 2) / scale : 0);
+    }
+
+    BufferedImage getImage() {
+        return mImage;
+    }
+
+    void clear() {
+        final AffineTransform transform = mGraphics.getTransform();
+        mGraphics.setTransform(new AffineTransform());
+        mGraphics.setComposite(AlphaComposite.Clear);
+        mGraphics.fillRect(0, 0, mImage.getWidth(), mImage.getHeight());
+        mGraphics.setComposite(AlphaComposite.SrcOver);
+        mGraphics.setTransform(transform);
+    }
+
+    void dispose() {
+        mGraphics.dispose();
+    }
+
+    @Override
+    public void save() {
+        mSaved.push(mGraphics.getTransform());
+    }
+
+    @Override
+    public void restore() {
+        mGraphics.setTransform(mSaved.pop());
+    }
+
+    @Override
+    public void rotate(final float degrees, final float px, final float py) {
+        mGraphics.rotate(Math.toRadians(degrees), px, py);
+    }
+
+    @Override
+    public void drawArc(final float left, final float top, final float right, final float bottom,
+                        final float startAngle, final float sweepAngle, final int paint) {
+        // Java2D measures angles counterclockwise
+        mArc.setArc(left, top, right - left, bottom - top, -startAngle, -sweepAngle, Arc2D.OPEN);
+        stroke(paint);
+        mGraphics.draw(mArc);
+    }
+
+    @Override
+    public void drawLines(final float[] points, final int offset, final int count, final int paint) {
+        stroke(paint);
+        for (int i = offset; i + 3 < offset + count; i += 4) {
+            mLine.setLine(points[i], points[i + 1], points[i + 2], points[i + 3]);
+            mGraphics.draw(mLine);
+        }
+    }
+
+    @Override
+    public void drawPolygon(final float[] points, final int count, final int paint) {
+        if (points != mPathPoints) {
+            mPathPoints = points;
+            mPath.reset();
+            mPath.moveTo(points[0], points[1]);
+            for (int i = 1; i < count; i++) {
+                mPath.lineTo(points[2 * i], points[2 * i + 1]);
+            }
+            mPath.closePath();
+        }
+        mGraphics.setColor(mColors[paint]);
+        mGraphics.fill(mPath);
+    }
+
+    @Override
+    public void drawCircle(final float cx, final float cy, final float radius, final int paint) {
+        mCircle.setFrame(cx - radius, cy - radius, 2 * radius, 2 * radius);
+        mGraphics.setColor(mColors[paint]);
+        if (null != mStrokes[paint]) {
+            mGraphics.setStroke(mStrokes[paint]);
+            mGraphics.draw(mCircle);
+        } else {
+            mGraphics.fill(mCircle);
+        }
+    }
+
+    private void stroke(final int paint) {
+        mGraphics.setColor(mColors[paint]);
+        mGraphics.setStroke(mStrokes[paint]);
+    }
+}
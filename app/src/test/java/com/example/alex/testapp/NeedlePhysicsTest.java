@@ -0,0 +1,169 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NeedlePhysicsTest {
+
+    @Test
+    public void needleSettlesOnTarget() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setTarget(0, 42.0f);
+        assertTrue(physics.isMoving(0));
+
+        for (int i = 0; i < 600 && physics.isMoving(0); i++) {
+            physics.advance(1.0f / 60.0f);
+        }
+        assertFalse(physics.isMoving(0));
+        assertEquals(42.0f, physics.getValue(0), 0.0f);
+        assertEquals(0.0f, physics.getVelocity(0), 0.0f);
+    }
+
+    @Test
+    public void motionDoesNotDependOnFrameRate() throws Exception {
+        final NeedlePhysics slow = new NeedlePhysics(1);
+        final NeedlePhysics fast = new NeedlePhysics(1);
+        slow.setTarget(0, 30.0f);
+        fast.setTarget(0, 30.0f);
+
+        for (int i = 0; i < 6; i++) {
+            slow.advance(1.0f / 30.0f);
+            fast.advance(1.0f / 120.0f);
+            fast.advance(1.0f / 120.0f);
+            fast.advance(1.0f / 120.0f);
+            fast.advance(1.0f / 120.0f);
+        }
+        assertEquals(slow.getValue(0), fast.getValue(0), 1e-4f);
+    }
+
+    @Test
+    public void needlesInBatchAreIndependent() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(3);
+        physics.setTarget(0, 10.0f);
+        physics.setTarget(2, -5.0f);
+        physics.advance(0.1f);
+
+        assertTrue(physics.getValue(0) > 0.0f);
+        assertEquals(0.0f, physics.getValue(1), 0.0f);
+        assertFalse(physics.isMoving(1));
+        assertTrue(physics.getValue(2) < 0.0f);
+    }
+
+    @Test
+    public void longFramesAreClamped() throws Exception {
+        final NeedlePhysics clamped = new NeedlePhysics(1);
+        final NeedlePhysics reference = new NeedlePhysics(1);
+        clamped.setTarget(0, 50.0f);
+        reference.setTarget(0, 50.0f);
+
+        clamped.advance(10.0f);
+        reference.advance(NeedlePhysics.MAX_FRAME_TIME);
+        assertEquals(reference.getValue(0), clamped.getValue(0), 0.0f);
+    }
+
+    @Test
+    public void dampedModelIsIndependentOfFrameTimes() throws Exception {
+        final NeedlePhysics smooth = new NeedlePhysics(1);
+        final NeedlePhysics dropped = new NeedlePhysics(1);
+        smooth.setModel(NeedlePhysics.MODEL_DAMPED);
+        dropped.setModel(NeedlePhysics.MODEL_DAMPED);
+        smooth.setTarget(0, 80.0f);
+        dropped.setTarget(0, 80.0f);
+
+        for (int i = 0; i < 30; i++) {
+            smooth.advance(1.0f / 60.0f);
+        }
+        // Half a second in one frame lands on the same curve
+        dropped.advance(0.5f);
+        assertEquals(smooth.getValue(0), dropped.getValue(0), 1e-3f);
+        assertEquals(smooth.getVelocity(0), dropped.getVelocity(0), 1e-2f);
+    }
+
+    @Test
+    public void criticallyDampedNeverOvershoots() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_DAMPED);
+        physics.setTarget(0, 100.0f);
+        for (int i = 0; i < 600 && physics.isMoving(0); i++) {
+            physics.advance(1.0f / 60.0f);
+            assertTrue(physics.getValue(0) <= 100.0f);
+        }
+        assertFalse(physics.isMoving(0));
+        assertEquals(100.0f, physics.getValue(0), 0.0f);
+    }
+
+    @Test
+    public void underdampedOvershootsAndSettles() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_DAMPED);
+        physics.setDampingRatio(0.3f);
+        physics.setTarget(0, 100.0f);
+        float peak = 0.0f;
+        for (int i = 0; i < 1200 && physics.isMoving(0); i++) {
+            physics.advance(1.0f / 60.0f);
+            peak = Math.max(peak, physics.getValue(0));
+        }
+        assertTrue("peak " + peak, peak > 110.0f);
+        assertFalse(physics.isMoving(0));
+    }
+
+    @Test
+    public void linearModelMovesAtItsRate() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_LINEAR);
+        physics.setMaxRate(20.0f);
+        physics.setTarget(0, -30.0f);
+
+        physics.advance(1.0f);
+        assertEquals(-20.0f, physics.getValue(0), 1e-4f);
+        assertEquals(-20.0f, physics.getVelocity(0), 0.0f);
+        physics.advance(10.0f);
+        assertFalse(physics.isMoving(0));
+        assertEquals(-30.0f, physics.getValue(0), 0.0f);
+    }
+
+    @Test
+    public void retargetingKeepsVelocity() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_DAMPED);
+        physics.setTarget(0, 50.0f);
+        physics.advance(0.1f);
+        final float value = physics.getValue(0);
+        final float velocity = physics.getVelocity(0);
+
+        physics.setTarget(0, 20.0f);
+        assertEquals(value, physics.getValue(0), 0.0f);
+        physics.advance(1e-4f);
+        assertEquals(velocity, physics.getVelocity(0), 0.5f);
+    }
+
+    @Test
+    public void closedFormTimeDoesNotDrift() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_LINEAR);
+        physics.setMaxRate(1.0f);
+        physics.setTarget(0, 100000.0f);
+
+        // Many short frames add up to the same time as one long one
+        for (int i = 0; i < 2500000; i++) {
+            physics.advanceNanos(20000000L);
+        }
+        assertEquals(50000000000000L, physics.getTimeNanos());
+        assertEquals(50000.0f, physics.getValue(0), 0.01f);
+    }
+
+    @Test
+    public void advanceToIgnoresEarlierTimes() throws Exception {
+        final NeedlePhysics physics = new NeedlePhysics(1);
+        physics.setModel(NeedlePhysics.MODEL_LINEAR);
+        physics.setMaxRate(10.0f);
+        physics.setTarget(0, 100.0f);
+
+        physics.advanceTo(2000000000L);
+        assertEquals(20.0f, physics.getValue(0), 1e-4f);
+        physics.advanceTo(1000000000L);
+        assertEquals(2000000000L, physics.getTimeNanos());
+        assertEquals(20.0f, physics.getValue(0), 1e-4f);
+    }
+}
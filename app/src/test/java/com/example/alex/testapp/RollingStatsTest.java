@@ -0,0 +1,111 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RollingStatsTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void windowMatchesBruteForce() throws Exception {
+        final int n = 5000;
+        final long window = 250 * MS;
+        final RollingStats stats = new RollingStats(1024, window);
+        final long[] times = new long[n];
+        final float[] values = new float[n];
+        final Random random = new Random(7);
+        long time = 0;
+        for (int i = 0; i < n; i++) {
+            // 200 Hz on average, with jitter
+            time += 1 + random.nextInt(9) * MS;
+            times[i] = time;
+            values[i] = random.nextFloat() * 100.0f;
+            stats.add(time, values[i]);
+
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            double sum = 0;
+            int count = 0;
+            for (int j = i; j >= 0 && time - times[j] <= window; j--) {
+                min = Math.min(min, values[j]);
+                max = Math.max(max, values[j]);
+                sum += values[j];
+                count++;
+            }
+            assertEquals(count, stats.getWindowCount());
+            assertEquals(min, stats.getWindowMin(), 0.0f);
+            assertEquals(max, stats.getWindowMax(), 0.0f);
+            assertEquals(sum / count, stats.getWindowAverage(), 1e-3);
+        }
+    }
+
+    @Test
+    public void capacityBoundsTheWindow() throws Exception {
+        final RollingStats stats = new RollingStats(4, Long.MAX_VALUE / 2);
+        final float[] values = {9, 1, 5, 7, 3, 2};
+        for (int i = 0; i < values.length; i++) {
+            stats.add(i, values[i]);
+        }
+        // Only 5, 7, 3, 2 are left
+        assertEquals(4, stats.getWindowCount());
+        assertEquals(2.0f, stats.getWindowMin(), 0.0f);
+        assertEquals(7.0f, stats.getWindowMax(), 0.0f);
+        assertEquals(4.25f, stats.getWindowAverage(), 1e-6f);
+        // The session still saw everything
+        assertEquals(1.0f, stats.getSessionMin(), 0.0f);
+        assertEquals(9.0f, stats.getSessionMax(), 0.0f);
+        assertEquals(27.0f / 6, stats.getSessionAverage(), 1e-6f);
+    }
+
+    @Test
+    public void peakIsHeldForTheWindow() throws Exception {
+        final RollingStats stats = new RollingStats(64, 100 * MS);
+        stats.add(0, 80.0f);
+        stats.add(50 * MS, 20.0f);
+        assertEquals(80.0f, stats.getWindowMax(), 0.0f);
+        stats.add(101 * MS, 30.0f);
+        assertEquals(30.0f, stats.getWindowMax(), 0.0f);
+        stats.expire(300 * MS);
+        assertEquals(0, stats.getWindowCount());
+        assertTrue(Float.isNaN(stats.getWindowMax()));
+        assertEquals(80.0f, stats.getSessionMax(), 0.0f);
+    }
+
+    @Test
+    public void windowAgesWithoutNewSamples() throws Exception {
+        final RollingStats stats = new RollingStats(64, 100 * MS);
+        assertEquals(-1, stats.getNextExpiryNanos());
+        stats.add(0, 80.0f);
+        stats.add(40 * MS, 20.0f);
+        // The peak is held until its sample is a whole window old, then the next one goes
+        long next = stats.getNextExpiryNanos();
+        assertTrue(next > 100 * MS && next <= 101 * MS);
+        stats.expire(next - 1);
+        assertEquals(80.0f, stats.getWindowMax(), 0.0f);
+        stats.expire(next);
+        assertEquals(20.0f, stats.getWindowMax(), 0.0f);
+        next = stats.getNextExpiryNanos();
+        stats.expire(next);
+        assertEquals(0, stats.getWindowCount());
+        assertTrue(Float.isNaN(stats.getWindowMax()));
+        assertEquals(-1, stats.getNextExpiryNanos());
+        assertEquals(2, stats.getSessionCount());
+    }
+
+    @Test
+    public void resetClearsEverything() throws Exception {
+        final RollingStats stats = new RollingStats(8, 100 * MS);
+        stats.add(0, 5.0f);
+        stats.reset();
+        assertEquals(0, stats.getWindowCount());
+        assertEquals(0, stats.getSessionCount());
+        assertTrue(Float.isNaN(stats.getSessionAverage()));
+        stats.add(1, -3.0f);
+        assertEquals(-3.0f, stats.getWindowMin(), 0.0f);
+        assertEquals(-3.0f, stats.getSessionMax(), 0.0f);
+    }
+}
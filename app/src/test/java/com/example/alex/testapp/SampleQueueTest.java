@@ -0,0 +1,131 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class SampleQueueTest {
+
+    private static class CountingSink implements SampleSink {
+        long mCount;
+        long mLastTimestamp = -1;
+        boolean mOrdered = true;
+
+        @Override
+        public void onSample(final long timestampNanos, final float value) {
+            if (timestampNanos <= mLastTimestamp) mOrdered = false;
+            mLastTimestamp = timestampNanos;
+            mCount++;
+        }
+    }
+
+    @Test
+    public void capacityIsRoundedToPowerOfTwo() throws Exception {
+        assertEquals(1, new SpscSampleQueue(1).getCapacity());
+        assertEquals(256, new SpscSampleQueue(200).getCapacity());
+        assertEquals(8, new MpscSampleQueue(8).getCapacity());
+    }
+
+    @Test
+    public void spscDropsWhenFull() throws Exception {
+        assertDropsWhenFull(new SpscSampleQueue(4));
+    }
+
+    @Test
+    public void mpscDropsWhenFull() throws Exception {
+        assertDropsWhenFull(new MpscSampleQueue(4));
+    }
+
+    private void assertDropsWhenFull(final SampleQueue queue) {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i, i));
+        }
+        assertFalse(queue.offer(4, 4));
+        assertEquals(1, queue.getDroppedCount());
+
+        final SampleReducer reducer = new SampleReducer(SampleReducer.LATEST);
+        assertEquals(4, queue.drainTo(reducer));
+        assertEquals(3.0f, reducer.getValue(), 0.0f);
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.offer(5, 5));
+        assertFalse(queue.isEmpty());
+    }
+
+    @Test
+    public void reducerModes() throws Exception {
+        final float[] values = {4.0f, 1.0f, 7.0f, 2.0f};
+        final int[] modes = {SampleReducer.LATEST, SampleReducer.MEAN, SampleReducer.MIN, SampleReducer.MAX};
+        final float[] expected = {2.0f, 3.5f, 1.0f, 7.0f};
+        for (int m = 0; m < modes.length; m++) {
+            final SampleReducer reducer = new SampleReducer(modes[m]);
+            for (int i = 0; i < values.length; i++) {
+                reducer.onSample(i, values[i]);
+            }
+            assertEquals(expected[m], reducer.getValue(), 1e-6f);
+            assertEquals(3, reducer.getTimestamp());
+        }
+    }
+
+    @Test
+    public void spscDeliversEverySampleInOrder() throws Exception {
+        final SampleQueue queue = new SpscSampleQueue(64);
+        final int samples = 200000;
+        final CountingSink sink = new CountingSink();
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < samples; i++) {
+                    while (!queue.offer(i, i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.start();
+        while (sink.mCount < samples) {
+            queue.drainTo(sink);
+        }
+        producer.join();
+        assertTrue(sink.mOrdered);
+        assertEquals(samples, sink.mCount);
+    }
+
+    @Test
+    public void mpscDeliversEverySample() throws Exception {
+        final SampleQueue queue = new MpscSampleQueue(64);
+        final int producers = 4;
+        final int samples = 50000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < samples; i++) {
+                        while (!queue.offer(i, i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+        final CountingSink sink = new CountingSink();
+        while (sink.mCount < producers * samples) {
+            queue.drainTo(sink);
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(producers * samples, sink.mCount);
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SignalFilterTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void emaReaches63PercentAfterOneTimeConstant() throws Exception {
+        final EmaFilter filter = new EmaFilter(0.1f);
+        assertEquals(0.0f, filter.filter(0, 0.0f), 0.0f);
+        float value = 0;
+        // Same result whatever the sample rate
+        for (long t = 5 * MS; t <= 100 * MS; t += 5 * MS) {
+            value = filter.filter(t, 100.0f);
+        }
+        assertEquals(63.2f, value, 0.1f);
+
+        filter.reset();
+        assertEquals(42.0f, filter.filter(200 * MS, 42.0f), 0.0f);
+    }
+
+    @Test
+    public void medianRejectsSpikes() throws Exception {
+        final MedianFilter filter = new MedianFilter(5);
+        assertEquals(10.0f, filter.filter(0, 10.0f), 0.0f);
+        assertEquals(15.0f, filter.filter(1, 20.0f), 0.0f);
+        filter.filter(2, 10.0f);
+        filter.filter(3, 10.0f);
+        assertEquals(10.0f, filter.filter(4, 500.0f), 0.0f);
+        assertEquals(10.0f, filter.filter(5, 10.0f), 0.0f);
+        // The window has moved past the 20 and keeps sliding
+        for (int i = 6; i < 11; i++) {
+            filter.filter(i, 30.0f);
+        }
+        assertEquals(30.0f, filter.filter(11, 30.0f), 0.0f);
+    }
+
+    @Test
+    public void kalmanSmoothsNoise() throws Exception {
+        final KalmanFilter filter = new KalmanFilter(1.0f, 25.0f);
+        final Random random = new Random(1);
+        double rawError = 0;
+        double filteredError = 0;
+        for (int i = 0; i < 2000; i++) {
+            final float raw = 50.0f + (float) random.nextGaussian() * 5.0f;
+            final float filtered = filter.filter(i * 5 * MS, raw);
+            if (i >= 200) {
+                rawError += (raw - 50.0f) * (raw - 50.0f);
+                filteredError += (filtered - 50.0f) * (filtered - 50.0f);
+            }
+        }
+        assertTrue(filteredError < rawError / 10);
+        assertTrue(filter.getVariance() < 25.0f);
+    }
+
+    @Test
+    public void filterStage() throws Exception {
+        final SampleReducer reducer = new SampleReducer(SampleReducer.LATEST);
+        final SampleSink stage = SpeedStages.filter(new MedianFilter(3), reducer);
+        stage.onSample(0, 1.0f);
+        stage.onSample(1, 100.0f);
+        stage.onSample(2, 1.0f);
+        assertEquals(1.0f, reducer.getValue(), 0.0f);
+    }
+}
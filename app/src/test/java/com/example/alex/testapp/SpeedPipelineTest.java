@@ -0,0 +1,146 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SpeedPipelineTest {
+
+    private static class RecordingSink implements SampleSink {
+        final long[] mTimestamps = new long[16];
+        final float[] mValues = new float[16];
+        int mCount;
+
+        @Override
+        public void onSample(final long timestampNanos, final float value) {
+            mTimestamps[mCount] = timestampNanos;
+            mValues[mCount] = value;
+            mCount++;
+        }
+    }
+
+    @Test
+    public void stagesCompose() throws Exception {
+        final RecordingSink sink = new RecordingSink();
+        final SampleSink pipeline = SpeedStages.convert(SpeedStages.KMH_PER_MPS, 0,
+                SpeedStages.clamp(0, 100, SpeedStages.decimate(10, sink)));
+
+        pipeline.onSample(0, 10);   // 36
+        pipeline.onSample(5, 20);   // decimated
+        pipeline.onSample(10, 50);  // 180, clamped
+        pipeline.onSample(15, -1);  // decimated
+        pipeline.onSample(25, -1);  // -3.6, clamped
+
+        assertEquals(3, sink.mCount);
+        assertEquals(36.0f, sink.mValues[0], 1e-4f);
+        assertEquals(100.0f, sink.mValues[1], 0.0f);
+        assertEquals(0.0f, sink.mValues[2], 0.0f);
+        assertEquals(25, sink.mTimestamps[2]);
+    }
+
+    @Test
+    public void fanOutReachesEverySink() throws Exception {
+        final RecordingSink a = new RecordingSink();
+        final RecordingSink b = new RecordingSink();
+        SpeedStages.fanOut(a, b).onSample(1, 2);
+        assertEquals(1, a.mCount);
+        assertEquals(1, b.mCount);
+        assertEquals(2.0f, b.mValues[0], 0.0f);
+    }
+
+    @Test
+    public void dropPolicies() throws Exception {
+        assertQueued(new BackpressureQueue(2, BackpressureQueue.DROP_NEWEST), 0, 1);
+        assertQueued(new BackpressureQueue(2, BackpressureQueue.DROP_OLDEST), 2, 3);
+        assertQueued(new BackpressureQueue(2, BackpressureQueue.LATEST_ONLY), 3);
+    }
+
+    private void assertQueued(final BackpressureQueue queue, final float... expected) {
+        boolean accepted = true;
+        for (int i = 0; i < 4; i++) {
+            accepted &= queue.offer(i, i);
+        }
+        assertEquals(BackpressureQueue.DROP_NEWEST != queue.getPolicy(), accepted);
+        assertEquals(4 - expected.length, queue.getDroppedCount());
+
+        final RecordingSink sink = new RecordingSink();
+        assertEquals(expected.length, queue.drainTo(sink));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], sink.mValues[i], 0.0f);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void blockWaitsForConsumer() throws Exception {
+        final BackpressureQueue queue = new BackpressureQueue(1, BackpressureQueue.BLOCK);
+        assertTrue(queue.offer(0, 0));
+
+        final CountDownLatch offered = new CountDownLatch(1);
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.offer(1, 1);
+                offered.countDown();
+            }
+        });
+        producer.start();
+        assertFalse(offered.await(50, TimeUnit.MILLISECONDS));
+
+        final RecordingSink sink = new RecordingSink();
+        queue.drainTo(sink);
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        queue.drainTo(sink);
+        assertEquals(2, sink.mCount);
+        assertEquals(1.0f, sink.mValues[1], 0.0f);
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void replayParsesTrace() throws Exception {
+        final String trace = "# millis speed\n0 10\n\n5,20.5\n10\t30\n";
+        final ReplaySpeedSource source = new ReplaySpeedSource(new StringReader(trace),
+                ReplaySpeedSource.AS_FAST_AS_POSSIBLE);
+        final RecordingSink sink = new RecordingSink();
+        source.start(sink);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (source.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        source.stop();
+
+        assertNull(source.getError());
+        assertEquals(3, sink.mCount);
+        assertEquals(20.5f, sink.mValues[1], 0.0f);
+        assertEquals(30.0f, sink.mValues[2], 0.0f);
+        // As fast as possible still keeps the recorded spacing
+        assertEquals(5000000L, sink.mTimestamps[1] - sink.mTimestamps[0]);
+        assertEquals(5000000L, sink.mTimestamps[2] - sink.mTimestamps[1]);
+    }
+
+    @Test
+    public void pacingKeepsSpacingHoursIn() throws Exception {
+        // 200 Hz, ten hours into the trace
+        final long hours = 10L * 3600L * 1000000000L;
+        final ReplayPacer realTime = new ReplayPacer(1.0f);
+        final ReplayPacer faster = new ReplayPacer(3.0f);
+        final long start = realTime.getDue(0);
+        final long fasterStart = faster.getDue(0);
+        long last = realTime.getDue(hours);
+        long fasterLast = faster.getDue(hours);
+        assertEquals(hours, last - start);
+        for (int i = 1; i <= 10; i++) {
+            final long due = realTime.getDue(hours + i * 5000000L);
+            final long fasterDue = faster.getDue(hours + i * 5000000L);
+            assertEquals(5000000L, due - last);
+            assertEquals(5000000L / 3.0, fasterDue - fasterLast, 1.0);
+            last = due;
+            fasterLast = fasterDue;
+        }
+        assertEquals((hours + 50000000L) / 3, fasterLast - fasterStart, 1);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StaticLayerSpecTest {
+
+    private static StaticLayerSpec spec(final int subdivisions, final int textShadowColor) {
+        return new StaticLayerSpec(true, true, 0.06f, 0.015f, 0.0f, 60.0f, 60.0f, 5, subdivisions,
+                new float[]{16.0f, 25.0f, 40.0f, 100.0f}, new int[]{0xFF000000, 0xFF000000, 0xFF000000, 0xFF000000},
+                textShadowColor);
+    }
+
+    @Test
+    public void equalValuesShareALayer() throws Exception {
+        assertEquals(spec(5, 0x64000000), spec(5, 0x64000000));
+        assertEquals(spec(5, 0x64000000).toString(), spec(5, 0x64000000).toString());
+    }
+
+    @Test
+    public void collidingHashesDoNotShareALayer() throws Exception {
+        // One more subdivision adds 31^3 to the hash, which the shadow color takes back off
+        final StaticLayerSpec a = spec(5, 0x64000000);
+        final StaticLayerSpec b = spec(6, 0x64000000 - 31 * 31 * 31);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, b);
+        assertNotEquals(a.toString(), b.toString());
+        assertNotEquals(new BackgroundCache.Key(300, 300, a), new BackgroundCache.Key(300, 300, b));
+    }
+
+    @Test
+    public void assetNameHoldsHashAndSize() throws Exception {
+        final StaticLayerSpec layer = spec(5, 0x64000000);
+        assertEquals(Integer.toHexString(layer.hashCode()) + "_300.png", layer.getAssetName(300));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.alex.testapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class TraceTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("trace", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mFile.delete();
+    }
+
+    private static long timestampOf(final int i) {
+        // 200 Hz with some jitter, starting at an arbitrary nanoTime
+        return 123456789000L + i * 5000000L + (i % 7) * 1000;
+    }
+
+    private static float valueOf(final int i) {
+        return 50.0f + (float) Math.sin(i / 100.0) * 30.0f;
+    }
+
+    private void record(final int count) throws Exception {
+        final TraceRecorder recorder = new TraceRecorder(mFile);
+        for (int i = 0; i < count; i++) {
+            recorder.onSample(timestampOf(i), valueOf(i));
+            if (i % 1000 == 999) {
+                // Let the writer keep up with the bounded queue
+                Thread.sleep(30);
+            }
+        }
+        recorder.close();
+        assertEquals(0, recorder.getDroppedCount());
+    }
+
+    @Test
+    public void roundTripIsExact() throws Exception {
+        final int count = 5000;
+        record(count);
+        // Two varints per sample, mostly a few bytes each
+        assertTrue(mFile.length() < count * 6);
+
+        final TraceReader reader = new TraceReader(mFile);
+        assertEquals(count, reader.getSampleCount());
+        assertEquals(5, reader.getBlockCount());
+        assertEquals(timestampOf(0), reader.getStartNanos());
+        assertEquals(timestampOf(count - 1), reader.getEndNanos());
+
+        final TraceReader.Cursor cursor = reader.newCursor();
+        for (int i = 0; i < count; i++) {
+            assertTrue(cursor.next());
+            assertEquals(timestampOf(i), cursor.getTimestampNanos());
+            assertEquals(valueOf(i), cursor.getValue(), 0.0f);
+        }
+        assertFalse(cursor.next());
+        reader.close();
+    }
+
+    @Test
+    public void seekFindsFirstSampleAtOrAfter() throws Exception {
+        final int count = 3000;
+        record(count);
+        final TraceReader reader = new TraceReader(mFile);
+        final TraceReader.Cursor cursor = reader.newCursor();
+
+        final int[] targets = {0, 1, 1023, 1024, 1025, 2047, 2999};
+        for (int target : targets) {
+            cursor.seek(timestampOf(target) - 500);
+            assertTrue(cursor.next());
+            assertEquals("seek to " + target, timestampOf(target), cursor.getTimestampNanos());
+            assertEquals(valueOf(target), cursor.getValue(), 0.0f);
+            if (target + 1 < count) {
+                assertTrue(cursor.next());
+                assertEquals(timestampOf(target + 1), cursor.getTimestampNanos());
+            }
+        }
+
+        cursor.seek(timestampOf(count - 1) + 1000000);
+        assertFalse(cursor.next());
+        reader.close();
+    }
+
+    @Test
+    public void fastReplayKeepsRecordedSpacing() throws Exception {
+        final int count = 2000;
+        record(count);
+        final TraceReader reader = new TraceReader(mFile);
+        final EmaFilter ema = new EmaFilter(0.05f);
+        final int[] decimated = new int[1];
+        final float[] filtered = new float[1];
+        // 10 s of samples, decimated to one per 100 ms, and smoothed
+        final SampleSink sink = SpeedStages.decimate(100000000L, new SampleSink() {
+            @Override
+            public void onSample(final long timestampNanos, final float value) {
+                decimated[0]++;
+                filtered[0] = ema.filter(timestampNanos, value);
+            }
+        });
+        final TraceReplaySource source = new TraceReplaySource(reader, TraceReplaySource.AS_FAST_AS_POSSIBLE);
+        source.start(sink);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (source.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        source.stop();
+        reader.close();
+
+        // About every 20th sample, give or take the recorded jitter
+        assertTrue("decimated to " + decimated[0], decimated[0] > count / 25 && decimated[0] <= count / 20);
+        // The filter follows the trace instead of holding on to its first value
+        assertEquals(valueOf(count - 1), filtered[0], 3.0f);
+        assertTrue(Math.abs(filtered[0] - valueOf(0)) > 20.0f);
+    }
+
+    @Test
+    public void emptyTrace() throws Exception {
+        record(0);
+        final TraceReader reader = new TraceReader(mFile);
+        assertEquals(0, reader.getSampleCount());
+        assertFalse(reader.newCursor().next());
+        reader.close();
+    }
+}
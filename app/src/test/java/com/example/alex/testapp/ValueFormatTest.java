@@ -0,0 +1,59 @@
+package com.example.alex.testapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ValueFormatTest {
+
+    private final char[] mBuffer = new char[ValueFormat.MAX_LENGTH];
+
+    private String format(final float value, final int decimals) {
+        return new String(mBuffer, 0, ValueFormat.format(value, decimals, mBuffer));
+    }
+
+    @Test
+    public void integerFormatMatchesValueString() throws Exception {
+        final float[] values = {0.0f, 7.9f, 42.0f, 100.0f, -3.5f, -0.4f, 123456.0f};
+        for (final float value : values) {
+            assertEquals(ValueFormat.valueString(value), format(value, 0));
+        }
+    }
+
+    @Test
+    public void decimalsAreTruncated() throws Exception {
+        assertEquals("3.2", format(3.25f, 1));
+        assertEquals("0.05", format(0.05f, 2));
+        assertEquals("-0.5", format(-0.5f, 1));
+        assertEquals("12.00", format(12.0f, 2));
+    }
+
+    @Test
+    public void largeValuesMatchValueString() throws Exception {
+        final float[] values = {3e9f, -3e9f, 1e30f, -1e30f, Float.MAX_VALUE, -Float.MAX_VALUE,
+                Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN};
+        for (final float value : values) {
+            assertEquals(ValueFormat.valueString(value), format(value, 0));
+        }
+        assertEquals("3000000000", format(3e9f, 0));
+        assertEquals("-9223372036854775807", format(-1e30f, 0));
+    }
+
+    @Test
+    public void saturatedValuesStayDigits() throws Exception {
+        for (int decimals = 0; decimals <= ValueFormat.MAX_DECIMALS; decimals++) {
+            final String formatted = format(-Float.MAX_VALUE, decimals);
+            assertTrue(formatted, formatted.matches("-[0-9]+(\\.[0-9]+)?"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyDecimalsAreRejected() throws Exception {
+        format(1.0f, ValueFormat.MAX_DECIMALS + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDecimalsAreRejected() throws Exception {
+        format(1.0f, -1);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.alex.testapp.benchmark;
+
+import com.example.alex.testapp.CompiledScale;
+import com.example.alex.testapp.GaugeScale;
+import com.example.alex.testapp.ValueFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GaugeScaleBenchmark {
+
+    private static final int DIVISION_COLOR = 0xff576172;
+    private static final float SCALE_TOP = 0.03f;
+
+    @Param({"5", "50"})
+    public int subdivisions;
+
+    private GaugeScale mScale;
+    private CompiledScale mCompiledScale;
+    private StubPaint[] mRangePaints;
+    private StubCanvas mCanvas;
+    private float mValue;
+    private final char[] mReadout = new char[ValueFormat.MAX_LENGTH];
+
+    @Setup
+    public void setUp() {
+        final float[] ranges = {16.0f, 25.0f, 40.0f, 100.0f};
+        mScale = new GaugeScale(0.0f, 100.0f, 60.0f, 5, subdivisions, ranges);
+        mRangePaints = new StubPaint[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            mRangePaints[i] = new StubPaint(0xff000000);
+        }
+        mCanvas = new StubCanvas();
+        mCompiledScale = new CompiledScale(mScale, SCALE_TOP);
+    }
+
+    private float nextValue() {
+        mValue += 0.37f;
+        if (mValue > 100.0f) mValue -= 100.0f;
+        return mValue;
+    }
+
+    @Benchmark
+    public float getAngleForValue() {
+        return mScale.getAngleForValue(nextValue());
+    }
+
+    @Benchmark
+    public StubPaint getRangePaint() {
+        return mRangePaints[mScale.getRangeIndex(nextValue())];
+    }
+
+    @Benchmark
+    public String valueString() {
+        return ValueFormat.valueString(nextValue());
+    }
+
+    @Benchmark
+    public int formatReadout(final Blackhole bh) {
+        final int length = ValueFormat.format(nextValue(), 0, mReadout);
+        bh.consume(mReadout);
+        return length;
+    }
+
+    @Benchmark
+    public CompiledScale compileScale() {
+        return new CompiledScale(mScale, SCALE_TOP);
+    }
+
+    /**
+     * {@code GaugeView.drawScale} with the canvas and paints stubbed.
+     */
+    @Benchmark
+    public void drawScale(final Blackhole bh) {
+        final StubCanvas canvas = mCanvas;
+        final int ranges = mCompiledScale.getRangeCount();
+        for (int r = 0; r < ranges; r++) {
+            final int count = mCompiledScale.getLineFloatCount(r);
+            if (0 == count) continue;
+
+            final StubPaint paint = mRangePaints[r];
+            paint.setStrokeWidth(0.01f);
+            paint.setColor(DIVISION_COLOR);
+            canvas.drawLines(mCompiledScale.getLines(r), 0, count, paint);
+        }
+        bh.consume(canvas.getChecksum());
+    }
+
+    /**
+     * The per-tick loop {@code GaugeView.drawScale} used before the scale was compiled, kept
+     * as the reference point.
+     */
+    @Benchmark
+    public void drawScalePerTick(final Blackhole bh) {
+        final StubCanvas canvas = mCanvas;
+        canvas.save();
+        canvas.rotate(mScale.getRotation(), 0.5f, 0.5f);
+
+        final int totalTicks = mScale.getTotalTicks();
+        for (int i = 0; i < totalTicks; i++) {
+            final float y1 = SCALE_TOP;
+            final float y3 = y1 + 0.090f;
+
+            final float value = mScale.getValueForTick(i);
+            final StubPaint paint = mRangePaints[mScale.getRangeIndex(value)];
+
+            if (mScale.isDivisionTick(value)) {
+                paint.setStrokeWidth(0.01f);
+                paint.setColor(DIVISION_COLOR);
+                canvas.drawLine(0.5f, y1 - 0.015f, 0.5f, y3 - 0.03f, paint);
+            }
+            canvas.rotate(mScale.getSubdivisionAngle(), 0.5f, 0.5f);
+        }
+        canvas.restore();
+        bh.consume(canvas.getChecksum());
+    }
+}
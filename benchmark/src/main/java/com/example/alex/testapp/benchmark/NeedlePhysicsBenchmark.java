@@ -0,0 +1,57 @@
+package com.example.alex.testapp.benchmark;
+
+import com.example.alex.testapp.NeedlePhysics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The needle integration behind {@code GaugeView.computeCurrentValue}, one 60 Hz frame per op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeedlePhysicsBenchmark {
+
+    private static final float FRAME = 1.0f / 60.0f;
+
+    @Param({"1", "24"})
+    public int needles;
+
+    private NeedlePhysics mPhysics;
+    private int mFrame;
+
+    @Setup
+    public void setUp() {
+        mPhysics = new NeedlePhysics(needles);
+        retarget();
+    }
+
+    private void retarget() {
+        for (int i = 0; i < needles; i++) {
+            mPhysics.setTarget(i, (mFrame + i * 7) % 100);
+        }
+    }
+
+    @Benchmark
+    public float computeCurrentValue() {
+        if (!mPhysics.advance(FRAME) || (++mFrame % 60) == 0) {
+            retarget();
+        }
+        return mPhysics.getValue(0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.alex.testapp.benchmark;
+
+/**
+ * Stand-in for {@code android.graphics.Canvas} that keeps just enough state for the
+ * benchmarked loops not to be optimized away.
+ */
+public class StubCanvas {
+
+    private final float[] mRotations = new float[16];
+    private int mSaveCount;
+    private float mRotation;
+    private float mChecksum;
+    private int mLines;
+
+    public int save() {
+        mRotations[mSaveCount] = mRotation;
+        return mSaveCount++;
+    }
+
+    public void restore() {
+        mRotation = mRotations[--mSaveCount];
+    }
+
+    public void rotate(final float degrees, final float px, final float py) {
+        mRotation += degrees;
+    }
+
+    public void drawLine(final float startX, final float startY, final float stopX, final float stopY,
+                         final StubPaint paint) {
+        mChecksum += mRotation + startY + stopY + paint.getStrokeWidth();
+        mLines++;
+    }
+
+    public void drawLines(final float[] pts, final int offset, final int count, final StubPaint paint) {
+        for (int i = offset; i < offset + count; i++) {
+            mChecksum += pts[i];
+        }
+        mChecksum += paint.getStrokeWidth();
+        mLines += count / 4;
+    }
+
+    public float getChecksum() {
+        return mChecksum;
+    }
+
+    public int getLines() {
+        return mLines;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.alex.testapp.benchmark;
+
+/**
+ * Stand-in for {@code android.graphics.Paint} holding the properties the scale loop mutates.
+ */
+public class StubPaint {
+
+    private int mColor;
+    private float mStrokeWidth;
+
+    public StubPaint(final int color) {
+        mColor = color;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public void setColor(final int color) {
+        mColor = color;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    public void setStrokeWidth(final float width) {
+        mStrokeWidth = width;
+    }
+}